@@ -0,0 +1,75 @@
+package com.example.demo.model.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding and removing items on carts of growing size. Each benchmark puts the cart back as it found it, so that
+ * its size stays the one given by {@code lines}. The item touched is the last line, the worst case of the lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int lines;
+
+    private Cart cart;
+    private Item lastItem;
+    private Item newItem;
+
+    @Setup
+    public void setUp() {
+        cart = createCart(lines, 3);
+        lastItem = cart.getLines().get(lines - 1).getItem();
+        newItem = createItem(lines + 1L);
+    }
+
+    @Benchmark
+    public long addThenRemoveOnExistingLine() {
+        cart.addItem(lastItem, 2);
+        cart.removeItem(lastItem, 2);
+        return cart.getTotalCents();
+    }
+
+    @Benchmark
+    public long addThenRemoveNewLine() {
+        cart.addItem(newItem);
+        cart.removeItem(newItem);
+        return cart.getTotalCents();
+    }
+
+    static Cart createCart(int lines, int quantity) {
+        Cart cart = new Cart();
+        cart.setId(1L);
+        for (long id = 1; id <= lines; id++) {
+            cart.addItem(createItem(id), quantity);
+        }
+        return cart;
+    }
+
+    static Item createItem(long id) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName("Widget " + id);
+        item.setDescription("A widget to benchmark with");
+        item.setPrice(BigDecimal.valueOf(2.99));
+        return item;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.model.persistence;
+
+import com.example.demo.catalog.ItemFragments;
+import com.example.demo.model.responses.CartResponse;
+import com.example.demo.model.responses.OrderResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the cart and order responses, with an {@link ObjectMapper} set up like the one Spring
+ * Boot gives the controllers. The entities are what the endpoints used to render, the response views are what they
+ * render now, building the view is part of the measurement. The spliced variants write items from their
+ * {@link ItemFragments}, which all but the first invocation find cached.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int lines;
+
+    @Param({"3", "100"})
+    private int quantity;
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper splicingMapper;
+    private Cart cart;
+    private UserOrder order;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        splicingMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .modulesToInstall(new ItemFragments(10_000))
+                .build();
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        cart = CartBenchmark.createCart(lines, quantity);
+        cart.setUser(user);
+        order = UserOrder.createFromCart(cart);
+        order.setId(1L);
+    }
+
+    @Benchmark
+    public byte[] cart() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cart);
+    }
+
+    @Benchmark
+    public byte[] order() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public byte[] cartResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(CartResponse.of(cart, false));
+    }
+
+    @Benchmark
+    public byte[] cartLineView() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(CartResponse.of(cart, true));
+    }
+
+    @Benchmark
+    public byte[] orderResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(OrderResponse.of(order, false));
+    }
+
+    @Benchmark
+    public byte[] orderLineView() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(OrderResponse.of(order, true));
+    }
+
+    @Benchmark
+    public byte[] cartResponseSpliced() throws JsonProcessingException {
+        return splicingMapper.writeValueAsBytes(CartResponse.of(cart, false));
+    }
+
+    @Benchmark
+    public byte[] orderResponseSpliced() throws JsonProcessingException {
+        return splicingMapper.writeValueAsBytes(OrderResponse.of(order, false));
+    }
+}
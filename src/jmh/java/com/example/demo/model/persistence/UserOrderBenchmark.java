@@ -0,0 +1,39 @@
+package com.example.demo.model.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserOrderBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int lines;
+
+    private Cart cart;
+
+    @Setup
+    public void setUp() {
+        cart = CartBenchmark.createCart(lines, 3);
+    }
+
+    @Benchmark
+    public UserOrder createFromCart() {
+        return UserOrder.createFromCart(cart);
+    }
+}
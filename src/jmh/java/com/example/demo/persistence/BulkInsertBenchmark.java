@@ -0,0 +1,112 @@
+package com.example.demo.persistence;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second written by a bulk insert of {@value #ROWS} items, or of {@value #ROWS} users with their carts, in
+ * one transaction, through the repositories and the H2 database the application runs with. The rows are deleted
+ * after each iteration so that every iteration inserts into tables of the same size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    static final int ROWS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private ItemRepository itemRepository;
+    private UserRepository userRepository;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private int users;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(SareetaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:bulk-insert;DB_CLOSE_DELAY=-1",
+                        "logging.config=file:src/jmh/resources/logback-jmh.xml",
+                        "security.password.strength=4")
+                .run();
+        itemRepository = context.getBean(ItemRepository.class);
+        userRepository = context.getBean(UserRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteInserted() {
+        jdbcTemplate.update("delete from item where name like 'Bulk Widget%'");
+        jdbcTemplate.update("delete from user where username like 'bulk%'");
+        jdbcTemplate.update("delete from cart where id not in (select cart_id from user where cart_id is not null)");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Item> insertItems() {
+        List<Item> items = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Item item = new Item();
+            item.setName("Bulk Widget " + i);
+            item.setPrice(BigDecimal.valueOf(1.5));
+            item.setDescription("A widget inserted in bulk");
+            items.add(item);
+        }
+        return transactionTemplate.execute(status -> itemRepository.saveAll(items));
+    }
+
+    /**
+     * Each user comes with its cart, as on signup, so a row here is two inserts.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<User> insertUsers() {
+        List<User> newUsers = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            User user = new User();
+            user.setUsername("bulk" + users++);
+            user.setPassword("not a hash");
+            user.setCart(new Cart());
+            newUsers.add(user);
+        }
+        return transactionTemplate.execute(status -> userRepository.saveAll(newUsers));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.demo.security.SecurityConstants.HEADER_STRING;
+
+/**
+ * Signing a token the way a successful login does and checking it the way every authenticated request does.
+ * Verification is measured with the token cache disabled ({@code cold}) and with the token already cached
+ * ({@code warm}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JWTBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+    private static final AuthenticationManager AUTHENTICATION_MANAGER = auth -> auth;
+
+    private JWTAuthenticationFilter authenticationFilter;
+    private Authentication authentication;
+    private MockHttpServletRequest loginRequest;
+    private TokenCapturingResponse response;
+
+    @Setup
+    public void setUp() {
+        authenticationFilter = new JWTAuthenticationFilter(AUTHENTICATION_MANAGER, new SimpleMeterRegistry());
+        authentication = new UsernamePasswordAuthenticationToken(
+                new User("alice", "", Collections.emptyList()), null, Collections.emptyList());
+        loginRequest = new MockHttpServletRequest();
+        response = new TokenCapturingResponse();
+    }
+
+    @Benchmark
+    public String sign() throws IOException, ServletException {
+        authenticationFilter.successfulAuthentication(loginRequest, response, NO_OP_CHAIN, authentication);
+        return response.token;
+    }
+
+    @Benchmark
+    public Authentication verify(Verification verification) throws IOException, ServletException {
+        verification.authorizationFilter.doFilterInternal(verification.request, response, NO_OP_CHAIN);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @State(Scope.Thread)
+    public static class Verification {
+
+        @Param({"cold", "warm"})
+        private String cache;
+
+        private JWTAuthorizationFilter authorizationFilter;
+        private MockHttpServletRequest request;
+
+        @Setup
+        public void setUp(JWTBenchmark benchmark) throws IOException, ServletException {
+            JWTTokenVerifier tokenVerifier = new JWTTokenVerifier("warm".equals(cache) ? 1_000 : 0);
+            authorizationFilter = new JWTAuthorizationFilter(AUTHENTICATION_MANAGER, tokenVerifier);
+            request = new MockHttpServletRequest();
+            request.addHeader(HEADER_STRING, benchmark.sign());
+        }
+
+        @TearDown
+        public void tearDown() {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    /**
+     * Keeps only the last token, a {@link MockHttpServletResponse} would accumulate one header per invocation.
+     */
+    private static final class TokenCapturingResponse extends HttpServletResponseWrapper {
+        private String token;
+
+        private TokenCapturingResponse() {
+            super(new MockHttpServletResponse());
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            token = value;
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.example.demo.cart;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the carts being shopped with in memory when {@code cart.write-behind.enabled} is set, so that adding to and
+ * removing from a cart does not write to the database every time. A cart is loaded on first use, changed in memory
+ * under the lock of its stripe, one of {@code cart.write-behind.stripes}, and written later together with other
+ * carts, {@code cart.write-behind.flush-batch-size} per transaction. Carts that are abandoned before they are written
+ * again cost nothing more.
+ * <p>
+ * A change is written at the latest about {@code cart.write-behind.max-unflushed-millis} after it was made, which is
+ * how much of it can be lost if the process dies: a background thread writes the carts that have been changed for
+ * half that time, and a change to a cart that has waited longer writes it right away. A cart is also written before
+ * it is checked out ({@link #flush(long)}) and all of them are written on shutdown, after which carts can no longer
+ * be changed. Carts left alone for {@code cart.write-behind.idle-evict-seconds} are dropped from memory once written.
+ * A cart is written by one thread at a time, a checkout waits for the background thread to be done with its cart.
+ * <p>
+ * This process must be the only one changing the carts: what it writes replaces what is in the database.
+ */
+@Component
+public class CartStore implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartStore.class);
+
+    private static final int FLUSH_ATTEMPTS = 3;
+
+    private final CartRepository cartRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long maxUnflushedNanos;
+    private final long flushPeriodMillis;
+    private final int batchSize;
+    private final long idleNanos;
+    private final Object[] stripes;
+    private final Map<Long, Entry> carts = new ConcurrentHashMap<>();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private volatile ScheduledExecutorService flusher;
+    private volatile boolean closed;
+
+    @Autowired
+    public CartStore(CartRepository cartRepository, PlatformTransactionManager transactionManager,
+                     @Value("${cart.write-behind.enabled:false}") boolean enabled,
+                     @Value("${cart.write-behind.max-unflushed-millis:2000}") long maxUnflushedMillis,
+                     @Value("${cart.write-behind.flush-batch-size:100}") int batchSize,
+                     @Value("${cart.write-behind.stripes:64}") int stripes,
+                     @Value("${cart.write-behind.idle-evict-seconds:600}") long idleEvictSeconds) {
+        this.cartRepository = cartRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxUnflushedNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(2, maxUnflushedMillis));
+        this.flushPeriodMillis = Math.max(1, maxUnflushedMillis / 2);
+        this.batchSize = Math.max(1, batchSize);
+        this.idleNanos = TimeUnit.SECONDS.toNanos(idleEvictSeconds);
+        this.stripes = new Object[Math.max(1, stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushDue, flushPeriodMillis, flushPeriodMillis, TimeUnit.MILLISECONDS);
+        logger.info("Writing carts behind, at most {} ms after they change",
+                TimeUnit.NANOSECONDS.toMillis(maxUnflushedNanos));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Applies the change to the cart, loading it first if it is not in memory yet. Returns a copy of the changed
+     * cart, which the caller is free to render while the cart goes on changing, or {@code null} if there is no such
+     * cart. Once the store is shut down, carts are refused with a {@link CartStoreClosedException}: their changes
+     * would not be written any more.
+     */
+    public Cart update(long cartId, Consumer<Cart> change) {
+        Object stripe = stripe(cartId);
+        Cart copy;
+        boolean overdue;
+        while (true) {
+            long observedEvictions = evictions.get();
+            Cart loaded = null;
+            if (!carts.containsKey(cartId)) {
+                // read outside the lock, a slow read must not hold up the other carts of the stripe
+                loaded = cartRepository.findWithLinesById(cartId).orElse(null);
+                if (loaded == null) {
+                    return null;
+                }
+            }
+            synchronized (stripe) {
+                if (closed) {
+                    throw new CartStoreClosedException();
+                }
+                Entry entry = carts.get(cartId);
+                if (entry == null) {
+                    if (loaded == null || evictions.get() != observedEvictions) {
+                        // dropped since, possibly after changes newer than what was read: read it again
+                        continue;
+                    }
+                    entry = new Entry(loaded);
+                    carts.put(cartId, entry);
+                }
+                change.accept(entry.cart);
+                long now = System.nanoTime();
+                entry.changed(now);
+                copy = entry.cart.copy();
+                overdue = now - entry.dirtySince >= maxUnflushedNanos;
+            }
+            break;
+        }
+        if (overdue) {
+            // the flusher is behind, do not let this cart wait any longer
+            write(Collections.singletonList(cartId));
+        }
+        return copy;
+    }
+
+    /**
+     * Writes the cart now if it has changes that are not written yet, waiting for a write of the cart that is
+     * already under way. Returns {@code false} if the cart could not be written, the database then holds an older
+     * version of it. Not to be called within a transaction: the cart is only written once that one commits.
+     */
+    public boolean flush(long cartId) {
+        if (!enabled) {
+            return true;
+        }
+        Object stripe = stripe(cartId);
+        for (int attempt = 0; attempt < FLUSH_ATTEMPTS; attempt++) {
+            Entry entry = carts.get(cartId);
+            if (entry == null) {
+                return true;
+            }
+            synchronized (stripe) {
+                try {
+                    while (entry.writing) {
+                        stripe.wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                if (!entry.isDirty()) {
+                    return true;
+                }
+            }
+            if (write(Collections.singletonList(cartId))) {
+                return true;
+            }
+        }
+        logger.error("Cart {} could not be written after {} attempts", cartId, FLUSH_ATTEMPTS);
+        return false;
+    }
+
+    public void flushAll() {
+        List<Long> dirty = new ArrayList<>();
+        carts.forEach((cartId, entry) -> {
+            if (isDirty(cartId, entry)) {
+                dirty.add(cartId);
+            }
+        });
+        writeInBatches(dirty);
+    }
+
+    public int getSize() {
+        return carts.size();
+    }
+
+    public long getDirty() {
+        return carts.entrySet().stream().filter(e -> isDirty(e.getKey(), e.getValue())).count();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("cart.store.size", carts, Map::size)
+                .description("Carts held in memory")
+                .register(registry);
+        Gauge.builder("cart.store.dirty", this, CartStore::getDirty)
+                .description("Carts in memory with changes not written yet")
+                .register(registry);
+        FunctionCounter.builder("cart.store.written", written, AtomicLong::get)
+                .description("Carts written to the database")
+                .register(registry);
+        FunctionCounter.builder("cart.store.failures", failures, AtomicLong::get)
+                .description("Cart writes that failed and will be tried again")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        closed = true;
+        for (Object stripe : stripes) {
+            synchronized (stripe) {
+                // waits for the changes that got in before the store closed, they are written below
+            }
+        }
+        ScheduledExecutorService executor = flusher;
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("Cart flusher did not stop in time");
+        }
+        flushAll();
+        logger.info("Carts written on shutdown, {} still not written", getDirty());
+    }
+
+    /**
+     * Writes the carts that have waited for half the allowed time and drops the ones nobody uses any more.
+     */
+    void flushDue() {
+        try {
+            long now = System.nanoTime();
+            List<Long> due = new ArrayList<>();
+            for (Iterator<Map.Entry<Long, Entry>> it = carts.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Long, Entry> e = it.next();
+                synchronized (stripe(e.getKey())) {
+                    Entry entry = e.getValue();
+                    if (entry.isDirty()) {
+                        if (now - entry.dirtySince >= maxUnflushedNanos / 2) {
+                            due.add(e.getKey());
+                        }
+                    } else if (!entry.writing && now - entry.lastUsed >= idleNanos) {
+                        it.remove();
+                        evictions.incrementAndGet();
+                    }
+                }
+            }
+            writeInBatches(due);
+        } catch (RuntimeException e) {
+            logger.error("Could not flush carts", e);
+        }
+    }
+
+    private void writeInBatches(List<Long> cartIds) {
+        for (int from = 0; from < cartIds.size(); from += batchSize) {
+            write(cartIds.subList(from, Math.min(cartIds.size(), from + batchSize)));
+        }
+    }
+
+    /**
+     * Writes the given carts in one transaction, leaving out those another thread is writing. Returns whether all of
+     * them were written.
+     */
+    private boolean write(List<Long> cartIds) {
+        Map<Long, Entry> claimed = claim(cartIds);
+        boolean all = claimed.size() == cartIds.size();
+        if (claimed.isEmpty()) {
+            return all;
+        }
+        long started = System.nanoTime();
+        Map<Long, Long> writtenChanges = new HashMap<>();
+        try {
+            transactionTemplate.execute(status -> {
+                for (Cart stored : cartRepository.findDistinctWithLinesByIdIn(new ArrayList<>(claimed.keySet()))) {
+                    Entry entry = claimed.get(stored.getId());
+                    synchronized (stripe(stored.getId())) {
+                        stored.copyContentsFrom(entry.cart);
+                        writtenChanges.put(stored.getId(), entry.changes);
+                    }
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            release(claimed);
+            if (claimed.size() > 1) {
+                logger.warn("Could not write {} carts at once, writing them one by one", claimed.size(), e);
+                for (Long cartId : claimed.keySet()) {
+                    all &= write(Collections.singletonList(cartId));
+                }
+                return all;
+            }
+            logger.error("Cart {} could not be written, it will be tried again", claimed.keySet().iterator().next(), e);
+            failures.incrementAndGet();
+            return false;
+        }
+        for (Map.Entry<Long, Entry> e : claimed.entrySet()) {
+            Long changes = writtenChanges.get(e.getKey());
+            Entry entry = e.getValue();
+            synchronized (stripe(e.getKey())) {
+                if (changes != null) {
+                    entry.written(changes, started);
+                } else {
+                    logger.warn("Cart {} is no longer in the database, its changes are dropped", e.getKey());
+                    if (carts.remove(e.getKey(), entry)) {
+                        evictions.incrementAndGet();
+                    }
+                }
+            }
+        }
+        release(claimed);
+        written.addAndGet(writtenChanges.size());
+        return all;
+    }
+
+    /**
+     * Marks the carts that are in memory and not being written as being written by this thread.
+     */
+    private Map<Long, Entry> claim(List<Long> cartIds) {
+        Map<Long, Entry> claimed = new HashMap<>();
+        for (Long cartId : cartIds) {
+            synchronized (stripe(cartId)) {
+                Entry entry = carts.get(cartId);
+                if (entry != null && !entry.writing) {
+                    entry.writing = true;
+                    claimed.put(cartId, entry);
+                }
+            }
+        }
+        return claimed;
+    }
+
+    private void release(Map<Long, Entry> claimed) {
+        claimed.forEach((cartId, entry) -> {
+            Object stripe = stripe(cartId);
+            synchronized (stripe) {
+                entry.writing = false;
+                stripe.notifyAll();
+            }
+        });
+    }
+
+    private boolean isDirty(long cartId, Entry entry) {
+        synchronized (stripe(cartId)) {
+            return entry.isDirty();
+        }
+    }
+
+    private Object stripe(long cartId) {
+        return stripes[(int) ((cartId ^ (cartId >>> 32)) & 0x7fffffff) % stripes.length];
+    }
+
+    /**
+     * A cart in memory and how far behind the database it is, only read and written under the lock of its stripe.
+     */
+    private static final class Entry {
+        private final Cart cart;
+        private long changes;
+        private long writtenChanges;
+        private long dirtySince;
+        private long lastUsed;
+        private boolean writing;
+
+        Entry(Cart cart) {
+            this.cart = cart;
+            this.lastUsed = System.nanoTime();
+        }
+
+        void changed(long now) {
+            if (!isDirty()) {
+                dirtySince = now;
+            }
+            changes++;
+            lastUsed = now;
+        }
+
+        /**
+         * Records that the cart was written as it was after the given number of changes, by a write that started at
+         * the given time. Changes made since are still to be written, and are counted as waiting since then.
+         */
+        void written(long changes, long started) {
+            writtenChanges = Math.max(writtenChanges, changes);
+            if (isDirty()) {
+                dirtySince = started;
+            }
+        }
+
+        boolean isDirty() {
+            return changes > writtenChanges;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.cart;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a cart is changed after the carts written behind were flushed for shutdown, the change could not be
+ * written any more. The client should retry, with another instance of the application.
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Carts cannot be changed while shutting down")
+public class CartStoreClosedException extends RuntimeException {
+
+    public CartStoreClosedException() {
+        super("Carts cannot be changed while shutting down");
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.cart;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a cart kept being changed by other requests while this one tried to change it, the client should
+ * retry.
+ */
+@ResponseStatus(value = HttpStatus.CONFLICT, reason = "The cart was changed by another request")
+public class CartUpdateConflictException extends RuntimeException {
+
+    public CartUpdateConflictException(Throwable cause) {
+        super("The cart was changed by another request", cause);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.demo.cart;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a change to a cart in its own transaction, and runs it again from the start when the cart's version shows
+ * that another request changed it in the meantime. Rather than holding a lock on the cart row, concurrent changes
+ * are let through and the losers redo their work on the fresh cart, which is cheap since a cart change is a single
+ * read and a few writes.
+ * <p>
+ * A change is tried at most {@code cart.update.max-attempts} times. Before each retry, the caller waits a random
+ * time of up to {@code cart.update.backoff-millis}, doubled on every attempt, so that requests that collided once
+ * do not collide again in lockstep. When no attempt gets through, a {@link CartUpdateConflictException} is thrown.
+ */
+@Component
+public class CartUpdates implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartUpdates.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    @Autowired
+    public CartUpdates(PlatformTransactionManager transactionManager,
+                       @Value("${cart.update.max-attempts:5}") int maxAttempts,
+                       @Value("${cart.update.backoff-millis:5}") long backoffMillis) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = Math.max(0, backoffMillis);
+    }
+
+    /**
+     * Runs the change, which is called again on every retry and must therefore read the cart itself.
+     */
+    public <T> T update(TransactionCallback<T> change) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(change);
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.incrementAndGet();
+                if (attempt >= maxAttempts) {
+                    exhausted.incrementAndGet();
+                    logger.warn("Cart update gave up after {} conflicting attempts", attempt);
+                    throw new CartUpdateConflictException(e);
+                }
+                retries.incrementAndGet();
+                logger.debug("Cart update conflicted on attempt {}, retrying", attempt);
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getExhausted() {
+        return exhausted.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cart.update.conflicts", conflicts, AtomicLong::get)
+                .description("Cart updates that found the cart changed by another request")
+                .register(registry);
+        FunctionCounter.builder("cart.update.retries", retries, AtomicLong::get)
+                .description("Cart updates run again after a conflict")
+                .register(registry);
+        FunctionCounter.builder("cart.update.exhausted", exhausted, AtomicLong::get)
+                .description("Cart updates that still conflicted on their last attempt")
+                .register(registry);
+    }
+
+    private void backOff(int attempt, OptimisticLockingFailureException conflict) {
+        long bound = backoffMillis << Math.min(attempt - 1, 16);
+        if (bound <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CartUpdateConflictException(conflict);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.persistence.ReadWriteRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache in front of {@link ItemRepository}. Items are cached by id, lists of items by name and the
+ * full listing once it has been read. Every item write must go through this class so that the affected entries are
+ * invalidated; a write bumps a generation counter so that a read racing with it never re-populates stale data.
+ * <p>
+ * Writes are announced with an {@link ItemsChangedEvent} for the other views of the catalog. Inside a transaction
+ * the entries are dropped again once it completes, so that reads made before the commit do not stay cached. Entries
+ * are read from the primary database, a replica that has not caught up yet would have them cached until the next write.
+ */
+@Component
+public class ItemCatalog {
+
+    private final ItemRepository itemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxEntries;
+
+    private final Map<Long, Item> byId = new ConcurrentHashMap<>();
+    private final Map<String, List<Item>> byName = new ConcurrentHashMap<>();
+    private volatile List<Item> all;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ItemCatalog(ItemRepository itemRepository, ApplicationEventPublisher eventPublisher,
+                       @Value("${catalog.cache.max-entries:10000}") int maxEntries) {
+        this.itemRepository = itemRepository;
+        this.eventPublisher = eventPublisher;
+        this.maxEntries = maxEntries;
+    }
+
+    public List<Item> findAll() {
+        List<Item> cached = all;
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        long observed = generation.get();
+        List<Item> items = Collections.unmodifiableList(new ArrayList<>(
+                ReadWriteRoutingDataSource.onPrimary(() -> itemRepository.findAll())));
+        if (items.size() <= maxEntries && generation.get() == observed) {
+            all = items;
+            items.forEach(item -> cacheById(item, observed));
+            if (generation.get() != observed) {
+                all = null;
+            }
+        }
+        return items;
+    }
+
+    public Optional<Item> findById(Long id) {
+        Item cached = byId.get(id);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return Optional.of(cached);
+        }
+        misses.incrementAndGet();
+        long observed = generation.get();
+        Optional<Item> item = ReadWriteRoutingDataSource.onPrimary(() -> itemRepository.findById(id));
+        item.ifPresent(found -> cacheById(found, observed));
+        return item;
+    }
+
+    /**
+     * Resolves the given ids, going to the database once for all the ids that are not cached.
+     */
+    public Map<Long, Item> findAllById(Collection<Long> ids) {
+        Map<Long, Item> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            Item cached = byId.get(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        hits.addAndGet(found.size());
+        if (!missing.isEmpty()) {
+            misses.addAndGet(missing.size());
+            long observed = generation.get();
+            for (Item item : ReadWriteRoutingDataSource.onPrimary(() -> itemRepository.findAllById(missing))) {
+                found.put(item.getId(), item);
+                cacheById(item, observed);
+            }
+        }
+        return found;
+    }
+
+    public List<Item> findByName(String name) {
+        List<Item> cached = byName.get(name);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        long observed = generation.get();
+        List<Item> items = ReadWriteRoutingDataSource.onPrimary(() -> itemRepository.findByName(name));
+        if (items == null || items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        items = Collections.unmodifiableList(new ArrayList<>(items));
+        if (byName.size() < maxEntries && generation.get() == observed) {
+            byName.put(name, items);
+            if (generation.get() != observed) {
+                byName.remove(name, items);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Reads the {@code size} items that follow {@code afterId} in id order. Pages go straight to the database and
+     * are not cached, so that walking a large catalog does not grow the heap.
+     */
+    public List<Item> findPage(long afterId, int size) {
+        return itemRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size));
+    }
+
+    public Item save(Item item) {
+        Item saved = itemRepository.save(item);
+        changed(Collections.singletonList(saved.getId()));
+        return saved;
+    }
+
+    public List<Item> saveAll(Collection<Item> items) {
+        List<Item> saved = itemRepository.saveAll(items);
+        changed(saved.stream().map(Item::getId).collect(Collectors.toList()));
+        return saved;
+    }
+
+    public void deleteById(Long id) {
+        itemRepository.deleteById(id);
+        changed(Collections.singletonList(id));
+    }
+
+    /**
+     * To be called when the given item was written without going through this class.
+     */
+    public void invalidate(Long id) {
+        changed(Collections.singletonList(id));
+    }
+
+    public void invalidateAll() {
+        changed(null);
+    }
+
+    /**
+     * The entity tag of everything read from the catalog: it changes with every write, and again once the
+     * transaction of the write has completed. Tags carry the time the process started, generations start over with it.
+     */
+    public String getVersionTag() {
+        return epoch + "-" + generation.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    private void changed(Collection<Long> ids) {
+        evict(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(ids);
+                }
+            });
+        }
+        eventPublisher.publishEvent(ids == null ? ItemsChangedEvent.fullRefresh() : new ItemsChangedEvent(ids));
+    }
+
+    /**
+     * Drops the entries of the given items along with the name index and the full listing, which may contain them.
+     */
+    private void evict(Collection<Long> ids) {
+        if (ids == null) {
+            evictAll();
+            return;
+        }
+        generation.incrementAndGet();
+        ids.forEach(byId::remove);
+        byName.clear();
+        all = null;
+    }
+
+    private void evictAll() {
+        generation.incrementAndGet();
+        byId.clear();
+        byName.clear();
+        all = null;
+    }
+
+    private void cacheById(Item item, long observed) {
+        if (byId.size() >= maxEntries || generation.get() != observed) {
+            return;
+        }
+        byId.put(item.getId(), item);
+        if (generation.get() != observed) {
+            byId.remove(item.getId(), item);
+        }
+    }
+}
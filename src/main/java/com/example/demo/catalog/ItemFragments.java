@@ -0,0 +1,176 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.persistence.Item;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the JSON of every item that was written in a response, encoded once, and has Jackson copy those bytes
+ * instead of serializing the item again. Carts and orders list an item once per unit and the catalog is read far
+ * more often than it changes, so most items of a response are written this way.
+ * <p>
+ * This is a Jackson module, which Spring Boot installs in the {@code ObjectMapper} of the controllers. A fragment is
+ * only used while the item still has the name, price and description it was rendered from, otherwise the item is
+ * rendered again and its new fragment replaces the old one; an item as it was ordered is told apart from the item
+ * in the catalog that way. Fragments are dropped once an {@link ItemsChangedEvent} names their item, and at most
+ * {@code catalog.fragments.max-entries} items are kept. Output that is indented, or that is not written as text,
+ * is serialized as usual.
+ */
+@Component
+public class ItemFragments extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Map<Long, Fragment> fragments = new ConcurrentHashMap<>();
+    private final transient JsonFactory jsonFactory = new JsonFactory();
+    private final transient AtomicLong hits = new AtomicLong();
+    private final transient AtomicLong misses = new AtomicLong();
+    private final int maxEntries;
+
+    public ItemFragments(@Value("${catalog.fragments.max-entries:10000}") int maxEntries) {
+        super(ItemFragments.class.getSimpleName());
+        this.maxEntries = maxEntries;
+        setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription description,
+                                                      JsonSerializer<?> serializer) {
+                return Item.class.equals(description.getBeanClass())
+                        ? new FragmentSerializer((JsonSerializer<Object>) serializer) : serializer;
+            }
+        });
+    }
+
+    @EventListener
+    public void onItemsChanged(ItemsChangedEvent event) {
+        if (event.isFullRefresh()) {
+            fragments.clear();
+        } else {
+            event.getIds().forEach(fragments::remove);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return fragments.size();
+    }
+
+    private SerializedString fragmentOf(Item item, JsonSerializer<Object> serializer, SerializerProvider provider)
+            throws IOException {
+        Fragment cached = item.getId() == null ? null : fragments.get(item.getId());
+        if (cached != null && cached.matches(item)) {
+            hits.incrementAndGet();
+            return cached.json;
+        }
+        misses.incrementAndGet();
+        ByteArrayBuilder bytes = new ByteArrayBuilder();
+        try (JsonGenerator generator = jsonFactory.createGenerator(bytes)) {
+            serializer.serialize(item, generator, provider);
+        }
+        Fragment fragment = new Fragment(item, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        if (item.getId() != null && (cached != null || fragments.size() < maxEntries)) {
+            fragments.put(item.getId(), fragment);
+        }
+        return fragment.json;
+    }
+
+    /**
+     * The JSON of an item and the values it was rendered from.
+     */
+    private static final class Fragment {
+        private final String name;
+        private final long price;
+        private final String description;
+        private final SerializedString json;
+
+        Fragment(Item item, String json) {
+            this.name = item.getName();
+            this.price = item.getPriceCents();
+            this.description = item.getDescription();
+            this.json = new SerializedString(json);
+            // encoded now, not by the first response that writes it
+            this.json.asUnquotedUTF8();
+        }
+
+        boolean matches(Item item) {
+            return price == item.getPriceCents() && Objects.equals(name, item.getName())
+                    && Objects.equals(description, item.getDescription());
+        }
+    }
+
+    /**
+     * Writes the fragment of the item in place of what Jackson's own serializer of items would write.
+     */
+    private final class FragmentSerializer extends StdSerializer<Item>
+            implements ContextualSerializer, ResolvableSerializer {
+
+        private static final long serialVersionUID = 1L;
+
+        private final JsonSerializer<Object> serializer;
+
+        FragmentSerializer(JsonSerializer<Object> serializer) {
+            super(Item.class);
+            this.serializer = serializer;
+        }
+
+        @Override
+        public void serialize(Item item, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (generator instanceof TokenBuffer || generator.getPrettyPrinter() != null
+                    || provider.isEnabled(SerializationFeature.INDENT_OUTPUT)) {
+                serializer.serialize(item, generator, provider);
+                return;
+            }
+            generator.writeRawValue(fragmentOf(item, serializer, provider));
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (serializer instanceof ResolvableSerializer) {
+                ((ResolvableSerializer) serializer).resolve(provider);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property)
+                throws JsonMappingException {
+            if (!(serializer instanceof ContextualSerializer)) {
+                return this;
+            }
+            JsonSerializer<?> contextual = ((ContextualSerializer) serializer).createContextual(provider, property);
+            return contextual == serializer ? this : new FragmentSerializer((JsonSerializer<Object>) contextual);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.responses.ItemImportResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Imports the item files given as {@code --import-items=path[,path...]} on startup, the format following from the
+ * extension ({@code .csv}, {@code .ndjson} or {@code .jsonl}). To load a catalog from the command line without
+ * serving requests, run with {@code --spring.main.web-application-type=none} and a {@code spring.datasource.url}
+ * pointing at the database to fill; the application then exits once the files are imported.
+ */
+@Component
+public class ItemImportRunner implements ApplicationRunner {
+
+    static final String OPTION = "import-items";
+
+    private static final Logger logger = LoggerFactory.getLogger(ItemImportRunner.class);
+
+    private final ItemImporter itemImporter;
+
+    public ItemImportRunner(ItemImporter itemImporter) {
+        this.itemImporter = itemImporter;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        List<String> values = args.getOptionValues(OPTION);
+        if (values == null) {
+            return;
+        }
+        for (String value : values) {
+            for (String file : value.split(",")) {
+                if (!file.trim().isEmpty()) {
+                    importFile(Paths.get(file.trim()));
+                }
+            }
+        }
+    }
+
+    private void importFile(Path path) throws IOException {
+        ItemImporter.Format format = ItemImporter.Format.ofFileName(path.getFileName().toString());
+        logger.info("Importing items from {}", path);
+        ItemImportResult result;
+        try (InputStream in = Files.newInputStream(path)) {
+            result = itemImporter.importItems(in, format);
+        }
+        result.getFailures().forEach(failure ->
+                logger.warn("{} line {}: {}", path, failure.getLine(), failure.getReason()));
+        if (result.getFailed() > result.getFailures().size()) {
+            logger.warn("{}: {} more failed rows not listed", path, result.getFailed() - result.getFailures().size());
+        }
+    }
+}
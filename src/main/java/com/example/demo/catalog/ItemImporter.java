@@ -0,0 +1,383 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.Money;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ItemImportFailure;
+import com.example.demo.model.responses.ItemImportResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads items from a CSV or NDJSON stream of any size. Rows are parsed one at a time and written
+ * {@code catalog.import.batch-size} at a time, each batch in its own transaction through {@link ItemCatalog}, so
+ * that memory use does not depend on the size of the input and the caches and the search index follow along.
+ * <p>
+ * A row with an {@code id} updates that item. A row without one updates the item of the same name, or creates it
+ * when there is none. Fields left out of a row keep their current value, a new item needs a name and a price. A row
+ * that cannot be read or written is reported with its line and skipped, the rest of the input is still imported: a
+ * batch that cannot be written is written again one row at a time to find the rows at fault;
+ * at most {@code catalog.import.max-errors} failures are kept in the result, all of them are counted.
+ * <p>
+ * CSV input starts with a header naming its columns, among {@code id}, {@code name}, {@code price} and
+ * {@code description}, other columns are ignored. NDJSON input has one JSON object per line with the same fields.
+ */
+@Component
+public class ItemImporter {
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static final MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+        public static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+
+        public static Format of(MediaType mediaType) {
+            if (TEXT_CSV.includes(mediaType)) {
+                return CSV;
+            }
+            if (APPLICATION_NDJSON.includes(mediaType)) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Cannot import " + mediaType + ", expected " + TEXT_CSV + " or "
+                    + APPLICATION_NDJSON);
+        }
+
+        public static Format ofFileName(String fileName) {
+            String lower = fileName.toLowerCase(Locale.ROOT);
+            if (lower.endsWith(".csv")) {
+                return CSV;
+            }
+            if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Cannot import " + fileName + ", expected a .csv, .ndjson or .jsonl file");
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ItemImporter.class);
+
+    private final ItemCatalog itemCatalog;
+    private final ItemRepository itemRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public ItemImporter(ItemCatalog itemCatalog, ItemRepository itemRepository, ObjectMapper objectMapper,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${catalog.import.batch-size:500}") int batchSize,
+                        @Value("${catalog.import.max-errors:100}") int maxErrors) {
+        this.itemCatalog = itemCatalog;
+        this.itemRepository = itemRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Imports the whole stream, which is read as UTF-8 and left open.
+     */
+    public ItemImportResult importItems(InputStream in, Format format) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        ItemImportResult result = new ItemImportResult(maxErrors);
+        List<Row> batch = new ArrayList<>(batchSize);
+        RowReader rows = format == Format.CSV ? new CsvRows(reader) : new NdjsonRows(reader);
+        Row row;
+        while ((row = rows.next(result)) != null) {
+            batch.add(row);
+            if (batch.size() == batchSize) {
+                write(batch, result);
+                batch.clear();
+            }
+        }
+        write(batch, result);
+        logger.info("Imported {} rows: {} inserted, {} updated, {} failed", result.getRows(), result.getInserted(),
+                result.getUpdated(), result.getFailed());
+        return result;
+    }
+
+    private void write(List<Row> batch, ItemImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        RuntimeException error = tryWrite(batch, result);
+        if (error != null) {
+            // one bad row, such as a name too long for its column, must not take the rest of the batch with it
+            logger.warn("Could not write the {} rows from line {}, writing them one by one", batch.size(),
+                    batch.get(0).line, error);
+            for (Row row : batch) {
+                RuntimeException rowError = batch.size() > 1 ? tryWrite(Collections.singletonList(row), result) : error;
+                if (rowError != null) {
+                    logger.warn("Could not write line {}", row.line, rowError);
+                    result.rowFailed(row.line, "Not written: " + rowError.getMessage());
+                }
+            }
+        }
+        logger.info("Imported {} rows so far, {} failed", result.getRows(), result.getFailed());
+    }
+
+    /**
+     * Writes the rows in one transaction, returns what made it roll back if it did.
+     */
+    private RuntimeException tryWrite(List<Row> rows, ItemImportResult result) {
+        List<ItemImportFailure> failures = new ArrayList<>();
+        try {
+            int[] counts = transactionTemplate.execute(status -> upsert(rows, failures));
+            result.written(counts[0], counts[1]);
+            failures.forEach(failure -> result.rowFailed(failure.getLine(), failure.getReason()));
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Looks up the existing items of the batch with one query by id and one by name, then saves them all at once.
+     * Returns the number of items inserted and updated.
+     */
+    private int[] upsert(List<Row> batch, List<ItemImportFailure> failures) {
+        Set<Long> ids = new LinkedHashSet<>();
+        Set<String> names = new LinkedHashSet<>();
+        for (Row row : batch) {
+            if (row.id != null) {
+                ids.add(row.id);
+            } else if (row.name != null) {
+                names.add(row.name);
+            }
+        }
+        Map<Long, Item> byId = new HashMap<>();
+        if (!ids.isEmpty()) {
+            itemRepository.findAllById(ids).forEach(item -> byId.put(item.getId(), item));
+        }
+        Map<String, List<Item>> byName = new HashMap<>();
+        if (!names.isEmpty()) {
+            itemRepository.findByNameIn(names)
+                    .forEach(item -> byName.computeIfAbsent(item.getName(), name -> new ArrayList<>()).add(item));
+        }
+
+        // items are equal by id, which the new ones do not have yet
+        Set<Item> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Item> toSave = new ArrayList<>();
+        int inserted = 0;
+        int updated = 0;
+        for (Row row : batch) {
+            Item item;
+            if (row.id != null) {
+                item = byId.get(row.id);
+                if (item == null) {
+                    failures.add(new ItemImportFailure(row.line, "No item with id " + row.id));
+                    continue;
+                }
+            } else {
+                List<Item> sameName = byName.get(row.name);
+                if (sameName != null && sameName.size() > 1) {
+                    failures.add(new ItemImportFailure(row.line,
+                            sameName.size() + " items are named " + row.name + ", give an id"));
+                    continue;
+                }
+                item = sameName == null ? null : sameName.get(0);
+            }
+            if (item == null) {
+                if (row.price == null) {
+                    failures.add(new ItemImportFailure(row.line, "A new item needs a price"));
+                    continue;
+                }
+                item = new Item();
+                item.setDescription("");
+                List<Item> created = new ArrayList<>();
+                created.add(item);
+                byName.put(row.name, created);
+                inserted++;
+            } else if (!seen.contains(item)) {
+                updated++;
+            }
+            row.applyTo(item);
+            if (seen.add(item)) {
+                toSave.add(item);
+            }
+        }
+        itemCatalog.saveAll(toSave);
+        return new int[] {inserted, updated};
+    }
+
+    private interface RowReader {
+        /**
+         * The next row that could be parsed, the ones that could not are reported to the result and skipped.
+         */
+        Row next(ItemImportResult result) throws IOException;
+    }
+
+    private static final class CsvRows implements RowReader {
+        private final CsvRecordReader records;
+        private Map<String, Integer> columns;
+
+        CsvRows(BufferedReader reader) {
+            this.records = new CsvRecordReader(reader);
+        }
+
+        @Override
+        public Row next(ItemImportResult result) throws IOException {
+            if (columns == null && !readHeader()) {
+                return null;
+            }
+            List<String> fields;
+            while ((fields = records.next()) != null) {
+                if (fields.size() == 1 && fields.get(0).trim().isEmpty()) {
+                    continue;
+                }
+                result.rowRead();
+                try {
+                    return Row.of(records.getRecordLine(), field(fields, "id"), field(fields, "name"),
+                            field(fields, "price"), field(fields, "description"));
+                } catch (IllegalArgumentException e) {
+                    result.rowFailed(records.getRecordLine(), e.getMessage());
+                }
+            }
+            return null;
+        }
+
+        private boolean readHeader() throws IOException {
+            List<String> header = records.next();
+            if (header == null) {
+                return false;
+            }
+            columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            if (!columns.containsKey("name") && !columns.containsKey("id")) {
+                throw new IllegalArgumentException("The CSV header needs a name or an id column, got " + header);
+            }
+            return true;
+        }
+
+        private String field(List<String> fields, String column) {
+            Integer index = columns.get(column);
+            return index == null || index >= fields.size() ? null : fields.get(index);
+        }
+    }
+
+    private final class NdjsonRows implements RowReader {
+        private final BufferedReader reader;
+        private int line;
+
+        NdjsonRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Row next(ItemImportResult result) throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.trim().isEmpty()) {
+                    continue;
+                }
+                result.rowRead();
+                try {
+                    JsonNode node = objectMapper.readTree(text);
+                    if (node == null || !node.isObject()) {
+                        throw new IllegalArgumentException("Expected a JSON object");
+                    }
+                    return Row.of(line, text(node, "id"), text(node, "name"), text(node, "price"),
+                            text(node, "description"));
+                } catch (IOException | IllegalArgumentException e) {
+                    result.rowFailed(line, e.getMessage());
+                }
+            }
+            return null;
+        }
+
+        private String text(JsonNode node, String field) {
+            JsonNode value = node.get(field);
+            return value == null || value.isNull() ? null : value.asText();
+        }
+    }
+
+    private static final class Row {
+        private final int line;
+        private final Long id;
+        private final String name;
+        private final Long price;
+        private final String description;
+
+        private Row(int line, Long id, String name, Long price, String description) {
+            this.line = line;
+            this.id = id;
+            this.name = name;
+            this.price = price;
+            this.description = description;
+        }
+
+        static Row of(int line, String id, String name, String price, String description) {
+            Long parsedId = blank(id) ? null : parseId(id.trim());
+            String trimmedName = blank(name) ? null : name.trim();
+            if (parsedId == null && trimmedName == null) {
+                throw new IllegalArgumentException("A row needs a name or an id");
+            }
+            Long parsedPrice = blank(price) ? null : parsePrice(price.trim());
+            return new Row(line, parsedId, trimmedName, parsedPrice, description);
+        }
+
+        void applyTo(Item item) {
+            if (name != null) {
+                item.setName(name);
+            }
+            if (price != null) {
+                item.setPriceCents(price);
+            }
+            if (description != null) {
+                item.setDescription(description);
+            }
+        }
+
+        private static Long parseId(String id) {
+            try {
+                return Long.valueOf(id);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid id " + id);
+            }
+        }
+
+        private static long parsePrice(String price) {
+            long cents;
+            try {
+                cents = Money.toCents(new BigDecimal(price));
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new IllegalArgumentException("Invalid price " + price);
+            }
+            if (cents < 0) {
+                throw new IllegalArgumentException("Negative price " + price);
+            }
+            return cents;
+        }
+
+        private static boolean blank(String value) {
+            return value == null || value.trim().isEmpty();
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.persistence.ReadWriteRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over item names and descriptions. A query matches the items that contain every one of
+ * its terms, the last term also matching as a prefix so that the index can serve autocomplete. Results are ranked by
+ * the sum of {@code tf * idf} of the matched terms, a term in the name weighing more than one in the description.
+ * <p>
+ * The index is rebuilt from the database once the application is ready and then kept up to date from
+ * {@link ItemsChangedEvent}s.
+ */
+@Component
+public class ItemSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final float PREFIX_FACTOR = 0.5f;
+    private static final int MAX_PREFIX_EXPANSION = 64;
+
+    private Logger logger = LoggerFactory.getLogger(ItemSearchIndex.class);
+
+    private final ItemRepository itemRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private Map<Long, Set<String>> termsByItem = new HashMap<>();
+    // items indexed or removed while a rebuild reads the catalog, null when there is none; a removed item maps to null
+    private Map<Long, Item> changedDuringRebuild;
+
+    public ItemSearchIndex(ItemRepository itemRepository, EntityManager entityManager,
+                           PlatformTransactionManager transactionManager) {
+        this.itemRepository = itemRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Returns the ids of the best matching items, best first.
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            int documents = termsByItem.size();
+            List<TermMatch> matches = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                TermMatch match = i == tokens.size() - 1
+                        ? prefixMatch(tokens.get(i), documents) : exactMatch(tokens.get(i), documents);
+                if (match.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                matches.add(match);
+            }
+            matches.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+            PriorityQueue<ScoredItem> best = new PriorityQueue<>();
+            for (Long id : matches.get(0).ids()) {
+                float score = 0;
+                for (TermMatch match : matches) {
+                    float termScore = match.score(id);
+                    if (termScore == 0) {
+                        score = 0;
+                        break;
+                    }
+                    score += termScore;
+                }
+                if (score > 0) {
+                    best.add(new ScoredItem(id, score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            List<Long> ids = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                ids.add(best.poll().id);
+            }
+            Collections.reverse(ids);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the indexed terms starting with the given prefix, the most frequent first.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        List<String> tokens = tokenize(prefix);
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String token = tokens.get(tokens.size() - 1);
+        lock.readLock().lock();
+        try {
+            List<Map.Entry<String, Map<Long, Integer>>> terms = new ArrayList<>(prefixRange(token).entrySet());
+            terms.sort((a, b) -> Integer.compare(b.getValue().size(), a.getValue().size()));
+            List<String> suggestions = new ArrayList<>();
+            for (int i = 0; i < terms.size() && i < limit; i++) {
+                suggestions.add(terms.get(i).getKey());
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void index(Item item) {
+        Map<String, Integer> frequencies = frequencies(item);
+        lock.writeLock().lock();
+        try {
+            removeLocked(item.getId());
+            addLocked(item.getId(), frequencies, postings, termsByItem);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(item.getId(), item);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(id, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-reads the whole catalog into a new index and swaps it in, searches keep using the previous one meanwhile.
+     * Items indexed or removed while the catalog is read are applied again to the new index before it is swapped in,
+     * the catalog may have been read before they changed.
+     */
+    public synchronized void rebuild() {
+        NavigableMap<String, Map<Long, Integer>> newPostings = new TreeMap<>();
+        Map<Long, Set<String>> newTermsByItem = new HashMap<>();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            transactionTemplate.execute(status -> {
+                try (Stream<Item> items = itemRepository.streamAll()) {
+                    Iterator<Item> iterator = items.iterator();
+                    while (iterator.hasNext()) {
+                        Item item = iterator.next();
+                        addLocked(item.getId(), frequencies(item), newPostings, newTermsByItem);
+                        entityManager.detach(item);
+                    }
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            termsByItem = newTermsByItem;
+            changedDuringRebuild.forEach((id, item) -> {
+                removeLocked(id);
+                if (item != null) {
+                    addLocked(id, frequencies(item), postings, termsByItem);
+                }
+            });
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Search index rebuilt with {} items and {} terms", newTermsByItem.size(), newPostings.size());
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return termsByItem.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Reads the changed items from the primary database, which has them already.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onItemsChanged(ItemsChangedEvent event) {
+        ReadWriteRoutingDataSource.onPrimary(() -> refresh(event));
+    }
+
+    private void refresh(ItemsChangedEvent event) {
+        if (event.isFullRefresh()) {
+            rebuild();
+            return;
+        }
+        Set<Long> removed = new HashSet<>(event.getIds());
+        for (Item item : itemRepository.findAllById(event.getIds())) {
+            index(item);
+            removed.remove(item.getId());
+        }
+        removed.forEach(this::remove);
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Map<String, Integer> frequencies(Item item) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokenize(item.getName())) {
+            frequencies.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(item.getDescription())) {
+            frequencies.merge(token, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    private static void addLocked(Long id, Map<String, Integer> frequencies,
+                                  NavigableMap<String, Map<Long, Integer>> postings, Map<Long, Set<String>> termsByItem) {
+        for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+            postings.computeIfAbsent(frequency.getKey(), term -> new HashMap<>()).put(id, frequency.getValue());
+        }
+        termsByItem.put(id, new HashSet<>(frequencies.keySet()));
+    }
+
+    private void removeLocked(Long id) {
+        Set<String> terms = termsByItem.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> items = postings.get(term);
+            if (items != null) {
+                items.remove(id);
+                if (items.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private NavigableMap<String, Map<Long, Integer>> prefixRange(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private TermMatch exactMatch(String term, int documents) {
+        TermMatch match = new TermMatch();
+        Map<Long, Integer> items = postings.get(term);
+        if (items != null) {
+            match.add(items, idf(documents, items.size()));
+        }
+        return match;
+    }
+
+    private TermMatch prefixMatch(String prefix, int documents) {
+        TermMatch match = new TermMatch();
+        int expanded = 0;
+        for (Map.Entry<String, Map<Long, Integer>> term : prefixRange(prefix).entrySet()) {
+            if (expanded++ == MAX_PREFIX_EXPANSION) {
+                break;
+            }
+            float factor = term.getKey().equals(prefix) ? 1 : PREFIX_FACTOR;
+            match.add(term.getValue(), factor * idf(documents, term.getValue().size()));
+        }
+        return match;
+    }
+
+    private static float idf(int documents, int frequency) {
+        return (float) Math.log(1 + (double) documents / frequency);
+    }
+
+    /**
+     * Items matching one query term, through one or more indexed terms when the query term is a prefix.
+     */
+    private static final class TermMatch {
+        private final List<Map<Long, Integer>> postings = new ArrayList<>();
+        private final List<Float> weights = new ArrayList<>();
+        private int size;
+
+        private void add(Map<Long, Integer> items, float weight) {
+            postings.add(items);
+            weights.add(weight);
+            size += items.size();
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private Iterable<Long> ids() {
+            if (postings.size() == 1) {
+                return postings.get(0).keySet();
+            }
+            Set<Long> ids = new HashSet<>();
+            postings.forEach(items -> ids.addAll(items.keySet()));
+            return ids;
+        }
+
+        private float score(Long id) {
+            float score = 0;
+            for (int i = 0; i < postings.size(); i++) {
+                Integer frequency = postings.get(i).get(id);
+                if (frequency != null) {
+                    score = Math.max(score, frequency * weights.get(i));
+                }
+            }
+            return score;
+        }
+    }
+
+    private static final class ScoredItem implements Comparable<ScoredItem> {
+        private final Long id;
+        private final float score;
+
+        private ScoredItem(Long id, float score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(ScoredItem other) {
+            int byScore = Float.compare(score, other.score);
+            return byScore != 0 ? byScore : Long.compare(other.id, id);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole catalog as a JSON array while it is read from the database. Every item is detached once written,
+ * so memory use does not depend on the size of the catalog.
+ */
+@Component
+public class ItemStreamWriter {
+
+    private final ItemRepository itemRepository;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public ItemStreamWriter(ItemRepository itemRepository, ObjectMapper objectMapper, EntityManager entityManager,
+                            PlatformTransactionManager transactionManager) {
+        this.itemRepository = itemRepository;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public void writeAll(OutputStream out) {
+        transactionTemplate.execute(status -> {
+            try (Stream<Item> items = itemRepository.streamAll();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                Iterator<Item> iterator = items.iterator();
+                while (iterator.hasNext()) {
+                    Item item = iterator.next();
+                    generator.writeObject(item);
+                    entityManager.detach(item);
+                }
+                generator.writeEndArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+    }
+}
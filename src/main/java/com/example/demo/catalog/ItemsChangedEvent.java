@@ -0,0 +1,28 @@
+package com.example.demo.catalog;
+
+import java.util.Collection;
+
+/**
+ * Published by {@link ItemCatalog} after items have been written. Listeners should reload the given items, or the
+ * whole catalog when {@link #isFullRefresh()} is set.
+ */
+public class ItemsChangedEvent {
+
+    private final Collection<Long> ids;
+
+    public ItemsChangedEvent(Collection<Long> ids) {
+        this.ids = ids;
+    }
+
+    public static ItemsChangedEvent fullRefresh() {
+        return new ItemsChangedEvent(null);
+    }
+
+    public Collection<Long> getIds() {
+        return ids;
+    }
+
+    public boolean isFullRefresh() {
+        return ids == null;
+    }
+}
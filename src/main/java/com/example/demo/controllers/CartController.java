@@ -1,7 +1,13 @@
 package com.example.demo.controllers;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,15 +17,23 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.cart.CartStore;
+import com.example.demo.cart.CartUpdates;
+import com.example.demo.catalog.ItemCatalog;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
-import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
-import com.example.demo.model.persistence.repositories.ItemRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CartOperation;
+import com.example.demo.model.requests.ModifyCartBatchRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartOperationFailure;
+import com.example.demo.model.responses.CartResponse;
+import com.example.demo.model.responses.ModifyCartBatchResponse;
+import com.example.demo.security.UserIdentity;
+import com.example.demo.security.UserIdentityCache;
 
 @RestController
 @RequestMapping("/api/cart")
@@ -28,65 +42,127 @@ public class CartController {
 	private Logger logger = LoggerFactory.getLogger(CartController.class);
 	
 	@Autowired
-	private UserRepository userRepository;
+	private UserIdentityCache identityCache;
 	
 	@Autowired
 	private CartRepository cartRepository;
 	
 	@Autowired
-	private ItemRepository itemRepository;
+	private ItemCatalog itemCatalog;
 	
+	@Autowired
+	private CartUpdates cartUpdates;
+	
+	@Autowired
+	private CartStore cartStore;
+	
+	/**
+	 * With {@code lines=true}, the cart is answered with one line per item rather than its items once per unit, see
+	 * {@link CartResponse}. The same goes for the other cart endpoints.
+	 */
 	@PostMapping("/addToCart")
-	public ResponseEntity<Cart> addTocart(@RequestBody ModifyCartRequest request) {
-
-		logger.info("Trying to add items to the cart");
+	public ResponseEntity<CartResponse> addTocart(@RequestBody ModifyCartRequest request,
+			@RequestParam(defaultValue = "false") boolean lines) {
 
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
-			logger.error("User was not found");
+		Optional<Item> item = itemCatalog.findById(request.getItemId());
+		if(!item.isPresent()) {
+			logger.info("Item {} was not found", request.getItemId());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Optional<Item> item = itemRepository.findById(request.getItemId());
-		if(!item.isPresent()) {
-			logger.error("Item was not found");
+		Cart cart = changeCart(request.getUsername(), c -> c.addItem(item.get(), request.getQuantity()));
+		if(cart == null) {
+			logger.info("User {} was not found", request.getUsername());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.addItem(item.get()));
-		cartRepository.save(cart);
 
-		logger.debug("Cart saved successfully \n" + cart);
+		logger.debug("Added {} of item {} to cart {}", request.getQuantity(), request.getItemId(), cart.getId());
 
-		return ResponseEntity.ok(cart);
+		return ResponseEntity.ok(CartResponse.of(cart, lines));
 	}
 	
 	@PostMapping("/removeFromCart")
-	public ResponseEntity<Cart> removeFromcart(@RequestBody ModifyCartRequest request) {
-
-		logger.info("Trying to remove items to the cart");
+	public ResponseEntity<CartResponse> removeFromcart(@RequestBody ModifyCartRequest request,
+			@RequestParam(defaultValue = "false") boolean lines) {
 
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
-			logger.error("User was not found");
+		Optional<Item> item = itemCatalog.findById(request.getItemId());
+		if(!item.isPresent()) {
+			logger.info("Item {} was not found", request.getItemId());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Optional<Item> item = itemRepository.findById(request.getItemId());
-		if(!item.isPresent()) {
-			logger.error("Item was not found");
+		Cart cart = changeCart(request.getUsername(), c -> c.removeItem(item.get(), request.getQuantity()));
+		if(cart == null) {
+			logger.info("User {} was not found", request.getUsername());
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.removeItem(item.get()));
 
-		logger.debug("Cart before saving \n" + cart);
+		logger.debug("Removed {} of item {} from cart {}", request.getQuantity(), request.getItemId(), cart.getId());
 
-		cartRepository.save(cart);
+		return ResponseEntity.ok(CartResponse.of(cart, lines));
+	}
 
-		logger.debug("Cart saved successfully \n" + cart);
+	/**
+	 * Applies several item/quantity deltas as one change to the cart: saved once in one transaction, or applied in
+	 * memory and written later by the {@link CartStore} when carts are written behind. Operations that cannot be
+	 * applied are reported back instead of failing the whole batch.
+	 */
+	@PostMapping("/modifyCart")
+	public ResponseEntity<ModifyCartBatchResponse> modifyCart(@RequestBody ModifyCartBatchRequest request,
+			@RequestParam(defaultValue = "false") boolean lines) {
 
-		return ResponseEntity.ok(cart);
+		List<CartOperation> operations = request.getOperations() == null
+				? Collections.emptyList() : request.getOperations();
+		Set<Long> itemIds = operations.stream()
+				.map(CartOperation::getItemId)
+				.collect(Collectors.toSet());
+		Map<Long, Item> items = itemCatalog.findAllById(itemIds);
+
+		List<CartOperationFailure> failures = new ArrayList<>();
+		Cart cart = changeCart(request.getUsername(), c -> {
+			failures.clear();
+			for (int i = 0; i < operations.size(); i++) {
+				CartOperation operation = operations.get(i);
+				Item item = items.get(operation.getItemId());
+				if(item == null) {
+					failures.add(new CartOperationFailure(i, operation.getItemId(), "Item was not found"));
+				} else if(operation.getQuantity() == 0) {
+					failures.add(new CartOperationFailure(i, operation.getItemId(), "Quantity must not be zero"));
+				} else if(operation.getQuantity() > 0) {
+					c.addItem(item, operation.getQuantity());
+				} else {
+					c.removeItem(item, -operation.getQuantity());
+				}
+			}
+		});
+		if(cart == null) {
+			logger.info("User {} was not found", request.getUsername());
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+
+		logger.debug("Cart {} modified with {} operations, {} failed", cart.getId(), operations.size(), failures.size());
+
+		return ResponseEntity.ok(new ModifyCartBatchResponse(CartResponse.of(cart, lines), failures));
 	}
-		
+
+	/**
+	 * Applies the change to the user's cart and saves it, retrying on conflicts, or leaves it to the
+	 * {@link CartStore} when carts are written behind. Returns the changed cart, {@code null} if there is none.
+	 */
+	private Cart changeCart(String username, Consumer<Cart> change) {
+		UserIdentity identity = identityCache.resolve(username);
+		if(identity == null || identity.getCartId() == null) {
+			return null;
+		}
+		if(cartStore.isEnabled()) {
+			return cartStore.update(identity.getCartId(), change);
+		}
+		return cartUpdates.update(status -> {
+			Cart cart = cartRepository.findWithLinesById(identity.getCartId()).orElse(null);
+			if(cart != null) {
+				change.accept(cart);
+				cartRepository.save(cart);
+			}
+			return cart;
+		});
+	}
+
 }
@@ -1,40 +1,162 @@
 package com.example.demo.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.demo.catalog.ItemCatalog;
+import com.example.demo.catalog.ItemImporter;
+import com.example.demo.catalog.ItemSearchIndex;
+import com.example.demo.catalog.ItemStreamWriter;
 import com.example.demo.model.persistence.Item;
-import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ItemImportResult;
+import com.example.demo.model.responses.ItemPage;
 
 @RestController
 @RequestMapping("/api/item")
 public class ItemController {
 
 	@Autowired
-	private ItemRepository itemRepository;
+	private ItemCatalog itemCatalog;
+
+	@Autowired
+	private ItemStreamWriter itemStreamWriter;
+
+	@Autowired
+	private ItemSearchIndex itemSearchIndex;
+
+	@Autowired
+	private ItemImporter itemImporter;
+
+	@Value("${catalog.page.max-size:500}")
+	private int maxPageSize;
+
+	@Value("${catalog.import.enabled:false}")
+	private boolean importEnabled;
 	
+	/**
+	 * Answers 304 when the {@code If-None-Match} header holds the current version of the catalog, without reading it.
+	 */
 	@GetMapping
-	public ResponseEntity<List<Item>> getItems() {
-		return ResponseEntity.ok(itemRepository.findAll());
+	public ResponseEntity<List<Item>> getItems(WebRequest request) {
+		String etag = itemCatalog.getVersionTag();
+		if(request.checkNotModified(etag)) {
+			return notModified();
+		}
+		return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(itemCatalog.findAll());
+	}
+
+	/**
+	 * Keyset pagination on the item id: pass the {@code next} value of a page as {@code after} to get the following one.
+	 * Pages are not cached and are read from the replica when there is one, the other lookups go through the catalog.
+	 */
+	@Transactional(readOnly = true)
+	@GetMapping("/page")
+	public ResponseEntity<ItemPage> getItemPage(@RequestParam(defaultValue = "0") long after,
+			@RequestParam(defaultValue = "${catalog.page.default-size:50}") int size) {
+		if(size <= 0) {
+			return ResponseEntity.badRequest().build();
+		}
+		size = Math.min(size, maxPageSize);
+		List<Item> items = itemCatalog.findPage(after, size + 1);
+		if(items.size() <= size) {
+			return ResponseEntity.ok(new ItemPage(items, null));
+		}
+		items = items.subList(0, size);
+		return ResponseEntity.ok(new ItemPage(items, items.get(size - 1).getId()));
+	}
+
+	@GetMapping("/stream")
+	public ResponseEntity<StreamingResponseBody> streamItems() {
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON_UTF8)
+				.body(itemStreamWriter::writeAll);
+	}
+	
+	/**
+	 * Ranked full-text search over names and descriptions, the last word of {@code q} also matching as a prefix.
+	 */
+	@GetMapping("/search")
+	public ResponseEntity<List<Item>> searchItems(@RequestParam String q,
+			@RequestParam(defaultValue = "${catalog.page.default-size:50}") int limit) {
+		List<Long> ids = itemSearchIndex.search(q, Math.min(limit, maxPageSize));
+		Map<Long, Item> items = itemCatalog.findAllById(ids);
+		return ResponseEntity.ok(ids.stream()
+				.map(items::get)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList()));
+	}
+
+	@GetMapping("/suggest")
+	public ResponseEntity<List<String>> suggestTerms(@RequestParam String prefix,
+			@RequestParam(defaultValue = "10") int limit) {
+		return ResponseEntity.ok(itemSearchIndex.suggest(prefix, Math.min(limit, maxPageSize)));
 	}
 	
+	/**
+	 * Upserts the items of a CSV or NDJSON body, see {@link ItemImporter}. Any authenticated user could call it, so it
+	 * is only there when {@code catalog.import.enabled} is set.
+	 */
+	@PostMapping(path = "/import", consumes = {"text/csv", "application/x-ndjson"})
+	public ResponseEntity<ItemImportResult> importItems(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+			InputStream body) throws IOException {
+		if(!importEnabled) {
+			return ResponseEntity.notFound().build();
+		}
+		try {
+			return ResponseEntity.ok(itemImporter.importItems(body, ItemImporter.Format.of(contentType)));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().build();
+		}
+	}
+	
+	/**
+	 * Tagged with the version of the whole catalog, like {@link #getItems(WebRequest)}.
+	 */
 	@GetMapping("/{id}")
-	public ResponseEntity<Item> getItemById(@PathVariable Long id) {
-		return ResponseEntity.of(itemRepository.findById(id));
+	public ResponseEntity<Item> getItemById(@PathVariable Long id, WebRequest request) {
+		String etag = itemCatalog.getVersionTag();
+		if(request.checkNotModified(etag)) {
+			return notModified();
+		}
+		return itemCatalog.findById(id)
+				.map(item -> ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(item))
+				.orElseGet(() -> ResponseEntity.notFound().build());
 	}
 	
 	@GetMapping("/name/{name}")
 	public ResponseEntity<List<Item>> getItemsByName(@PathVariable String name) {
-		List<Item> items = itemRepository.findByName(name);
+		List<Item> items = itemCatalog.findByName(name);
 		return items == null || items.isEmpty() ? ResponseEntity.notFound().build()
 				: ResponseEntity.ok(items);
 			
 	}
-	
+
+	/**
+	 * The {@code ETag} header is already set by {@link WebRequest#checkNotModified(String)}.
+	 */
+	private static <T> ResponseEntity<T> notModified() {
+		return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CacheControl.noCache()).build();
+	}
 }
@@ -1,23 +1,43 @@
 package com.example.demo.controllers;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.example.demo.cart.CartStore;
 import com.example.demo.model.persistence.Cart;
-import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderHistoryPage;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.model.responses.OrderSubmissionStatus;
+import com.example.demo.model.responses.OrderSummary;
+import com.example.demo.order.OrderSubmissionQueue;
+import com.example.demo.order.OrderVersions;
+import com.example.demo.persistence.ReadWriteRoutingDataSource;
+import com.example.demo.security.UserIdentity;
+import com.example.demo.security.UserIdentityCache;
 
 @RestController
 @RequestMapping("/api/order")
@@ -26,45 +46,160 @@ public class OrderController {
 	private Logger logger = LoggerFactory.getLogger(OrderController.class);
 	
 	@Autowired
-	private UserRepository userRepository;
+	private UserIdentityCache identityCache;
 	
 	@Autowired
-	private OrderRepository orderRepository;
+	private CartRepository cartRepository;
+
+	@Autowired
+	private CartStore cartStore;
 	
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderSubmissionQueue orderSubmissions;
+
+	@Autowired
+	private OrderVersions orderVersions;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Value("${order.history.max-page-size:100}")
+	private int maxPageSize;
 	
+	/**
+	 * With {@code order.submit.async}, the order is queued to be written and answered with 202 before it has an id,
+	 * its {@code reference} and the {@code Location} header point to {@link #getSubmissionStatus(String, String)}.
+	 * A full queue is answered with 503, as is a cart written behind that could not be written.
+	 * <p>
+	 * With {@code lines=true}, orders are answered with one line per item rather than their items once per unit, see
+	 * {@link OrderResponse}. The same goes for the history and the detail of an order.
+	 */
 	@PostMapping("/submit/{username}")
-	public ResponseEntity<UserOrder> submit(@PathVariable String username) {
+	public ResponseEntity<OrderResponse> submit(@PathVariable String username,
+			@RequestParam(defaultValue = "false") boolean lines) {
 
-		logger.info("Trying to submit a new order....");
+		UserIdentity identity = identityCache.resolve(username);
+		if(identity != null && identity.getCartId() != null) {
+			// a cart written behind must be in the database before it is checked out; it is written before the
+			// order's transaction begins, so that a checkout never holds two connections at once
+			if(!cartStore.flush(identity.getCartId())) {
+				logger.warn("Cart of {} could not be written, order refused", username);
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+			}
+		}
+		return transactionTemplate.execute(status -> checkout(username, identity, lines));
+	}
 
-		User user = userRepository.findByUsername(username);
-		if(user == null) {
-			logger.error("User was not found");
+	private ResponseEntity<OrderResponse> checkout(String username, UserIdentity identity, boolean lines) {
+
+		Cart cart = identity == null || identity.getCartId() == null
+				? null : cartRepository.findWithLinesById(identity.getCartId()).orElse(null);
+		if(cart == null) {
+			logger.info("User {} was not found", username);
 			return ResponseEntity.notFound().build();
 		}
-		UserOrder order = UserOrder.createFromCart(user.getCart());
+		UserOrder order = UserOrder.createFromCart(cart);
 
-		logger.debug("Order before saving \n" + order);
+		if(orderSubmissions.isEnabled()) {
+			if(!orderSubmissions.offer(order)) {
+				logger.warn("Order queue is full, order of {} refused", username);
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+			}
+			logger.debug("Order {} queued with {} items", order.getReference(), order.getItemCount());
+			return ResponseEntity.status(HttpStatus.ACCEPTED)
+					.location(URI.create("/api/order/status/" + username + "/" + order.getReference()))
+					.body(OrderResponse.of(order, lines));
+		}
 
 		orderRepository.save(order);
+		orderVersions.changed(identity.getUserId());
 
-		logger.debug("Order saved successfully \n" + order);
-		return ResponseEntity.ok(order);
+		logger.debug("Order {} submitted with {} items", order.getId(), order.getItemCount());
+		return ResponseEntity.ok(OrderResponse.of(order, lines));
 	}
 	
+	@GetMapping("/status/{username}/{reference}")
+	public ResponseEntity<OrderSubmissionStatus> getSubmissionStatus(@PathVariable String username,
+			@PathVariable String reference) {
+
+		UserIdentity identity = identityCache.resolve(username);
+		if(identity == null) {
+			logger.info("User {} was not found", username);
+			return ResponseEntity.notFound().build();
+		}
+		OrderSubmissionQueue.State state = orderSubmissions.stateOf(reference, identity.getUserId());
+		if(state != null) {
+			return ResponseEntity.ok(new OrderSubmissionStatus(reference, state, null));
+		}
+		Optional<Long> id = orderRepository.findIdByReferenceAndUserId(reference, identity.getUserId());
+		return ResponseEntity.of(id.map(orderId ->
+				new OrderSubmissionStatus(reference, OrderSubmissionQueue.State.SUBMITTED, orderId)));
+	}
+	
+	/**
+	 * Answers 304 when the {@code If-None-Match} header holds the current version of the user's history, without
+	 * reading it. The history is read from the primary, where the orders its version counts are.
+	 */
+	@Transactional(readOnly = true)
 	@GetMapping("/history/{username}")
-	public ResponseEntity<List<UserOrder>> getOrdersForUser(@PathVariable String username) {
+	public ResponseEntity<List<OrderResponse>> getOrdersForUser(@PathVariable String username,
+			@RequestParam(defaultValue = "false") boolean lines, WebRequest request) {
+
+		UserIdentity identity = identityCache.resolve(username);
+		if(identity == null) {
+			logger.info("User {} was not found", username);
+			return ResponseEntity.notFound().build();
+		}
+		String etag = orderVersions.tagOf(identity.getUserId());
+		CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+		if(request.checkNotModified(etag)) {
+			// the ETag header is set along with the status
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+		}
+
+		// the tag counts orders committed on the primary, a lagging replica would answer older ones under it
+		List<UserOrder> orders = ReadWriteRoutingDataSource.onPrimary(
+				() -> orderRepository.findDistinctByUserId(identity.getUserId()));
+		return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(OrderResponse.of(orders, lines));
+	}
 
-		logger.info("Trying to get user order history....");
+	/**
+	 * Newest first. Each row only carries what the {@code user_order} table holds, use
+	 * {@link #getOrder(String, Long)} for the items of an order.
+	 */
+	@Transactional(readOnly = true)
+	@GetMapping("/history/{username}/page")
+	public ResponseEntity<OrderHistoryPage> getOrderHistoryPage(@PathVariable String username,
+			@RequestParam(defaultValue = "0") int page,
+			@RequestParam(defaultValue = "${order.history.default-page-size:20}") int size) {
 
-		User user = userRepository.findByUsername(username);
-		if(user == null) {
-			logger.error("User was not found");
+		if(page < 0 || size <= 0) {
+			return ResponseEntity.badRequest().build();
+		}
+		UserIdentity identity = identityCache.resolve(username);
+		if(identity == null) {
+			logger.info("User {} was not found", username);
 			return ResponseEntity.notFound().build();
 		}
+		size = Math.min(size, maxPageSize);
+		Slice<OrderSummary> orders = orderRepository.findSummariesByUserId(identity.getUserId(), PageRequest.of(page, size));
+		return ResponseEntity.ok(new OrderHistoryPage(orders.getContent(), page, size, orders.hasNext()));
+	}
 
-		logger.info("Oders retrieved successfully");
+	@Transactional(readOnly = true)
+	@GetMapping("/detail/{username}/{id}")
+	public ResponseEntity<OrderResponse> getOrder(@PathVariable String username, @PathVariable Long id,
+			@RequestParam(defaultValue = "false") boolean lines) {
 
-		return ResponseEntity.ok(orderRepository.findByUser(user));
+		UserIdentity identity = identityCache.resolve(username);
+		if(identity == null) {
+			logger.info("User {} was not found", username);
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.of(orderRepository.findByIdAndUserId(id, identity.getUserId())
+				.map(order -> OrderResponse.of(order, lines)));
 	}
 }
@@ -1,12 +1,14 @@
 package com.example.demo.controllers;
 
 import java.util.Objects;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -16,9 +18,10 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.responses.UserResponse;
+import com.example.demo.security.UserIdentityCache;
 
 @RestController
 @RequestMapping("/api/user")
@@ -30,60 +33,56 @@ public class UserController {
 	private UserRepository userRepository;
 	
 	@Autowired
-	private CartRepository cartRepository;
+	private PasswordEncoder passwordEncoder;
 
 	@Autowired
-	private BCryptPasswordEncoder bCryptPasswordEncoder;
+	private UserIdentityCache identityCache;
 
+	/**
+	 * Read straight into the response, the password hash is not even loaded.
+	 */
+	@Transactional(readOnly = true)
 	@GetMapping("/id/{id}")
-	public ResponseEntity<User> findById(@PathVariable Long id) {
-		return ResponseEntity.of(userRepository.findById(id));
+	public ResponseEntity<UserResponse> findById(@PathVariable Long id) {
+		return ResponseEntity.of(userRepository.findResponseById(id));
 	}
 	
+	@Transactional(readOnly = true)
 	@GetMapping("/{username}")
-	public ResponseEntity<User> findByUserName(@PathVariable String username) {
+	public ResponseEntity<UserResponse> findByUserName(@PathVariable String username) {
 
-		logger.error("Method : Find by username");
-
-		User user = userRepository.findByUsername(username);
-		if (Objects.isNull(user)) {
-			logger.error("User was not found");
+		Optional<UserResponse> user = userRepository.findResponseByUsername(username);
+		if (!user.isPresent()) {
+			logger.info("User {} was not found", username);
 			return ResponseEntity.notFound().build();
 		}
-		logger.info("User saved successfully");
-		return ResponseEntity.ok(user);
+		return ResponseEntity.ok(user.get());
 	}
 	
+	/**
+	 * The password is hashed before anything is written, so that no connection is held while BCrypt runs. The cart
+	 * is persisted along with the user.
+	 */
 	@PostMapping("/create")
-	public ResponseEntity<User> createUser(@RequestBody CreateUserRequest createUserRequest) {
-
-		logger.error("Method : Create new user");
-
-		User user = new User();
-		user.setUsername(createUserRequest.getUsername());
+	public ResponseEntity<UserResponse> createUser(@RequestBody CreateUserRequest createUserRequest) {
 
-		Cart cart = new Cart();
-		cartRepository.save(cart);
-		user.setCart(cart);
 		if (createUserRequest.getPassword().length() < 7 || !Objects.equals(createUserRequest.getPassword(),
 				createUserRequest.getPasswordConfirm())){
-			logger.error("Password and passwordConfirm are either is inferior to 7 characters or are not equals");
+			logger.info("Password of {} is shorter than 7 characters or does not match its confirmation",
+					createUserRequest.getUsername());
 			return ResponseEntity.badRequest().build();
 		}
 
+		User user = new User();
+		user.setUsername(createUserRequest.getUsername());
+		user.setCart(new Cart());
 
-		logger.info("Password and asswordConfirm before hashing : \n"
-				+ "Password : " + createUserRequest.getPassword() + "\n" + "PasswordConfirm : " + createUserRequest.getPasswordConfirm());
-
-		user.setPassword(bCryptPasswordEncoder.encode(createUserRequest.getPassword()));
-
-		logger.info("Before saving credentials (password Hashed)  : \n"
-				+ "Username : " + user.getUsername() + "\n" + "Password : " + user.getPassword());
-
+		user.setPassword(passwordEncoder.encode(createUserRequest.getPassword()));
 		userRepository.save(user);
+		identityCache.put(user);
 
-		logger.info("User saved successfully");
-		return ResponseEntity.ok(user);
+		logger.info("User {} created", user.getUsername());
+		return ResponseEntity.ok(UserResponse.of(user));
 	}
 	
 }
@@ -0,0 +1,87 @@
+package com.example.demo.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps about one in {@code every} events of the loggers that log on every request. Rules are declared as
+ * {@code <sample>logger.name=every</sample>}, the longest matching logger name wins, so a controller or a filter,
+ * each having its own logger, can be sampled at its own rate. Events above the threshold ({@code INFO} unless
+ * configured) are never dropped.
+ * <p>
+ * The decision is taken before the message is formatted and does not look at its arguments, so a dropped event
+ * costs the same whatever it would have logged.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final List<String> samples = new ArrayList<>();
+    private final Map<String, Integer> everyByLogger = new ConcurrentHashMap<>();
+    private Map<String, Integer> rules;
+    private Level threshold = Level.INFO;
+
+    public void addSample(String sample) {
+        samples.add(sample);
+    }
+
+    public void setThreshold(String threshold) {
+        this.threshold = Level.toLevel(threshold, Level.INFO);
+    }
+
+    @Override
+    public void start() {
+        Map<String, Integer> parsed = new ConcurrentHashMap<>();
+        for (String sample : samples) {
+            int separator = sample.lastIndexOf('=');
+            if (separator <= 0) {
+                addError("Expected <logger>=<every> but got " + sample);
+                continue;
+            }
+            try {
+                parsed.put(sample.substring(0, separator).trim(),
+                        Math.max(1, Integer.parseInt(sample.substring(separator + 1).trim())));
+            } catch (NumberFormatException e) {
+                addError("Expected <logger>=<every> but got " + sample, e);
+            }
+        }
+        rules = parsed;
+        everyByLogger.clear();
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // a null format is an isXxxEnabled() check, the actual event is sampled when it is logged
+        if (!isStarted() || format == null || level.toInt() > threshold.toInt()) {
+            return FilterReply.NEUTRAL;
+        }
+        int every = everyByLogger.computeIfAbsent(logger.getName(), this::every);
+        if (every <= 1 || ThreadLocalRandom.current().nextInt(every) == 0) {
+            return FilterReply.NEUTRAL;
+        }
+        return FilterReply.DENY;
+    }
+
+    private int every(String loggerName) {
+        String name = loggerName;
+        while (true) {
+            Integer every = rules.get(name);
+            if (every != null) {
+                return every;
+            }
+            int dot = name.lastIndexOf('.');
+            if (dot < 0) {
+                return 1;
+            }
+            name = name.substring(0, dot);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.metrics;
+
+import com.example.demo.catalog.ItemCatalog;
+import com.example.demo.catalog.ItemFragments;
+import com.example.demo.security.JWTTokenVerifier;
+import com.example.demo.security.UserIdentityCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Hits, misses and sizes of the in-process caches, read from the counters they already keep.
+ */
+@Component
+public class CacheMetrics implements MeterBinder {
+
+    private final ItemCatalog itemCatalog;
+    private final ItemFragments itemFragments;
+    private final UserIdentityCache identityCache;
+    private final JWTTokenVerifier tokenVerifier;
+
+    public CacheMetrics(ItemCatalog itemCatalog, ItemFragments itemFragments, UserIdentityCache identityCache,
+                        JWTTokenVerifier tokenVerifier) {
+        this.itemCatalog = itemCatalog;
+        this.itemFragments = itemFragments;
+        this.identityCache = identityCache;
+        this.tokenVerifier = tokenVerifier;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "items", itemCatalog, ItemCatalog::getHits, ItemCatalog::getMisses, ItemCatalog::size);
+        bind(registry, "item-fragments", itemFragments, ItemFragments::getHits, ItemFragments::getMisses,
+                ItemFragments::size);
+        bind(registry, "users", identityCache, UserIdentityCache::getHits, UserIdentityCache::getDatabaseLookups,
+                UserIdentityCache::size);
+        bind(registry, "tokens", tokenVerifier, JWTTokenVerifier::getHits, JWTTokenVerifier::getMisses,
+                JWTTokenVerifier::size);
+    }
+
+    private static <T> void bind(MeterRegistry registry, String cache, T target, ToDoubleFunction<T> hits,
+                                 ToDoubleFunction<T> misses, ToIntFunction<T> size) {
+        FunctionCounter.builder("cache.gets", target, hits)
+                .tags("cache", cache, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", target, misses)
+                .tags("cache", cache, "result", "miss")
+                .register(registry);
+        Gauge.builder("cache.size", target, value -> size.applyAsInt(value))
+                .tag("cache", cache)
+                .register(registry);
+    }
+}
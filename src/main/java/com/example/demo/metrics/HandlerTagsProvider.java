@@ -0,0 +1,52 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.servlet.DefaultWebMvcTagsProvider;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTags;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static com.example.demo.security.SecurityConstants.LOGIN_URL;
+
+/**
+ * Tags {@code http.server.requests} with the controller method that served the request. Logins are answered by
+ * the security filter chain before any handler is chosen, their {@code uri} is set here so that they are not counted
+ * as {@code UNKNOWN}.
+ */
+@Component
+public class HandlerTagsProvider extends DefaultWebMvcTagsProvider {
+
+    static final String HANDLER_TAG = "handler";
+    private static final Tag NO_HANDLER = Tag.of(HANDLER_TAG, "none");
+
+    @Override
+    public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                 Throwable exception) {
+        return Tags.of(super.getTags(request, response, handler, exception))
+                .and(uri(request, response), handler(handler));
+    }
+
+    @Override
+    public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+        return Tags.of(super.getLongRequestTags(request, handler)).and(handler(handler));
+    }
+
+    static Tag uri(HttpServletRequest request, HttpServletResponse response) {
+        if (LOGIN_URL.equals(request.getServletPath())) {
+            return Tag.of("uri", LOGIN_URL);
+        }
+        return WebMvcTags.uri(request, response);
+    }
+
+    private static Tag handler(Object handler) {
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod method = (HandlerMethod) handler;
+            return Tag.of(HANDLER_TAG, method.getBeanType().getSimpleName() + "." + method.getMethod().getName());
+        }
+        return NO_HANDLER;
+    }
+}
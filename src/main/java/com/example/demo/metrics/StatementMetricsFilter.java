@@ -0,0 +1,49 @@
+package com.example.demo.metrics;
+
+import com.example.demo.persistence.StatementCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Records how many SQL statements each request issued, by {@code uri}. Runs ahead of the security filters so that
+ * the statements of a login are counted too. Only the request thread is seen, work handed to another thread, such
+ * as a streamed response, is not counted.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class StatementMetricsFilter extends OncePerRequestFilter {
+
+    static final String METRIC_NAME = "request.sql.statements";
+
+    private final MeterRegistry meterRegistry;
+
+    public StatementMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        StatementCounter.reset();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            DistributionSummary.builder(METRIC_NAME)
+                    .description("SQL statements issued while serving a request")
+                    .tags("method", request.getMethod())
+                    .tag("uri", HandlerTagsProvider.uri(request, response).getValue())
+                    .register(meterRegistry)
+                    .record(StatementCounter.getStatements());
+        }
+    }
+}
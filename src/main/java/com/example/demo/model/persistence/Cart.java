@@ -2,51 +2,95 @@ package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
+import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.ManyToMany;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedSubgraph;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 @Entity
 @Table(name = "cart")
+@NamedEntityGraph(name = Cart.WITH_LINES, attributeNodes = {
+		@NamedAttributeNode(value = "lines", subgraph = "lines"),
+		@NamedAttributeNode("user")
+}, subgraphs = @NamedSubgraph(name = "lines", attributeNodes = @NamedAttributeNode("item")))
+@JsonPropertyOrder({"id", "items", "user", "total"})
 public class Cart {
+
+	/**
+	 * Everything a cart mutation or an order submission reads, in a single select.
+	 */
+	public static final String WITH_LINES = "Cart.withLines";
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+	@SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany
-	@JsonProperty
-	@Column
-    private List<Item> items;
+	@OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
+	@JsonIgnore
+	private List<CartLine> lines;
 	
 	@OneToOne(mappedBy = "cart")
 	@JsonProperty
     private User user;
 	
 	@Column
+	@Convert(converter = MoneyConverter.class)
 	@JsonProperty
-	private BigDecimal total;
+	@JsonSerialize(using = MoneySerializer.class)
+	@JsonDeserialize(using = MoneyDeserializer.class)
+	private long total;
+
+	/**
+	 * Checked on every update, so that of two requests changing the same cart at once, the second to commit fails
+	 * instead of overwriting the first.
+	 */
+	@Version
+	@Column(nullable = false)
+	@JsonIgnore
+	private long version;
 	
+	@JsonIgnore
 	public BigDecimal getTotal() {
-		return total;
+		return Money.toBigDecimal(total);
 	}
 
+	@JsonIgnore
 	public void setTotal(BigDecimal total) {
-		this.total = total;
+		this.total = Money.toCents(total);
+	}
+
+	@JsonIgnore
+	public long getTotalCents() {
+		return total;
+	}
+
+	public long getVersion() {
+		return version;
 	}
 
 	public User getUser() {
@@ -65,41 +109,132 @@ public class Cart {
 		this.id = id;
 	}
 
+	public List<CartLine> getLines() {
+		if(lines == null) {
+			lines = new ArrayList<>();
+		}
+		return lines;
+	}
+
+	/**
+	 * One entry per unit, as the cart has always been rendered to clients.
+	 */
+	@JsonProperty
 	public List<Item> getItems() {
+		if(lines == null || lines.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Item> items = new ArrayList<>();
+		for (CartLine line : lines) {
+			for (int i = 0; i < line.getQuantity(); i++) {
+				items.add(line.getItem());
+			}
+		}
 		return items;
 	}
 
 	public void setItems(List<Item> items) {
-		this.items = items;
+		getLines().clear();
+		total = 0;
+		if(items != null) {
+			items.forEach(this::addItem);
+		}
 	}
-	
+
+	@JsonIgnore
+	public int getItemCount() {
+		int count = 0;
+		for (CartLine line : getLines()) {
+			count += line.getQuantity();
+		}
+		return count;
+	}
+
 	public void addItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		addItem(item, 1);
+	}
+
+	public void addItem(Item item, int quantity) {
+		if(quantity <= 0) {
+			return;
 		}
-		items.add(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		CartLine line = findLine(item);
+		if(line == null) {
+			line = new CartLine(this, item);
+			getLines().add(line);
 		}
-		total = total.add(item.getPrice());
+		line.setQuantity(line.getQuantity() + quantity);
+		total = Math.addExact(total, Money.times(item.getPriceCents(), quantity));
 	}
-	
+
 	public void removeItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		removeItem(item, 1);
+	}
+
+	public void removeItem(Item item, int quantity) {
+		CartLine line = findLine(item);
+		if(line == null || quantity <= 0) {
+			return;
+		}
+		int removed = Math.min(quantity, line.getQuantity());
+		if(removed == line.getQuantity()) {
+			lines.remove(line);
+		} else {
+			line.setQuantity(line.getQuantity() - removed);
 		}
-		items.remove(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		total = Math.subtractExact(total, Money.times(item.getPriceCents(), removed));
+	}
+
+	/**
+	 * A copy with its own lines, for rendering a cart that other threads may go on changing.
+	 */
+	public Cart copy() {
+		Cart cart = new Cart();
+		cart.id = id;
+		cart.user = user;
+		cart.total = total;
+		cart.version = version;
+		for (CartLine line : getLines()) {
+			cart.getLines().add(new CartLine(cart, line));
+		}
+		return cart;
+	}
+
+	/**
+	 * Gives this cart the lines and total of the given one. Lines are matched by item, so that lines that did not
+	 * change are not written.
+	 */
+	public void copyContentsFrom(Cart source) {
+		Map<Long, CartLine> remaining = new HashMap<>();
+		for (CartLine line : getLines()) {
+			remaining.put(line.getItem().getId(), line);
+		}
+		for (CartLine line : source.getLines()) {
+			CartLine target = remaining.remove(line.getItem().getId());
+			if(target == null) {
+				target = new CartLine(this, line.getItem());
+				lines.add(target);
+			}
+			target.copyQuantityFrom(line);
+		}
+		lines.removeAll(remaining.values());
+		total = source.total;
+	}
+
+	private CartLine findLine(Item item) {
+		for (CartLine line : getLines()) {
+			if(line.getItem().equals(item)) {
+				return line;
+			}
 		}
-		total = total.subtract(item.getPrice());
+		return null;
 	}
 
 	@Override
 	public String toString() {
 		return "Cart{" +
 				"id=" + id +
-				", items=" + items +
+				", lines=" + lines +
 				", user=" + user +
 				'}';
 	}
@@ -0,0 +1,128 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+@Entity
+@Table(name = "cart_line")
+public class CartLine {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_line_seq")
+	@SequenceGenerator(name = "cart_line_seq", sequenceName = "cart_line_seq", allocationSize = 50)
+	@JsonProperty
+	private Long id;
+
+	@ManyToOne(optional = false, fetch = FetchType.LAZY)
+	@JoinColumn(name = "cart_id", nullable = false)
+	@JsonIgnore
+	private Cart cart;
+
+	@ManyToOne(optional = false)
+	@JoinColumn(name = "item_id", nullable = false)
+	@JsonProperty
+	private Item item;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int quantity;
+
+	@Column(nullable = false)
+	@Convert(converter = MoneyConverter.class)
+	@JsonProperty
+	@JsonSerialize(using = MoneySerializer.class)
+	@JsonDeserialize(using = MoneyDeserializer.class)
+	private long lineTotal;
+
+	public CartLine() {
+	}
+
+	public CartLine(Cart cart, Item item) {
+		this.cart = cart;
+		this.item = item;
+	}
+
+	CartLine(Cart cart, CartLine line) {
+		this.cart = cart;
+		this.id = line.id;
+		this.item = line.item;
+		copyQuantityFrom(line);
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public Cart getCart() {
+		return cart;
+	}
+
+	public void setCart(Cart cart) {
+		this.cart = cart;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public void setItem(Item item) {
+		this.item = item;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+		this.lineTotal = Money.times(item.getPriceCents(), quantity);
+	}
+
+	@JsonIgnore
+	public BigDecimal getLineTotal() {
+		return Money.toBigDecimal(lineTotal);
+	}
+
+	@JsonIgnore
+	public long getLineTotalCents() {
+		return lineTotal;
+	}
+
+	/**
+	 * Takes the quantity and total of the line as they are, rather than pricing the quantity again.
+	 */
+	void copyQuantityFrom(CartLine line) {
+		this.quantity = line.quantity;
+		this.lineTotal = line.lineTotal;
+	}
+
+	@Override
+	public String toString() {
+		return "CartLine{" +
+				"id=" + id +
+				", itemId=" + (item == null ? null : item.getId()) +
+				", quantity=" + quantity +
+				", lineTotal=" + Money.toString(lineTotal) +
+				'}';
+	}
+}
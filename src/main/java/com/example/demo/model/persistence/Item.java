@@ -3,23 +3,28 @@ package com.example.demo.model.persistence;
 import java.math.BigDecimal;
 
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 @Entity
 @Table(name = "item")
 public class Item {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+	@SequenceGenerator(name = "item_seq", sequenceName = "item_seq", allocationSize = 50)
 	@JsonProperty
 	private Long id;
 	
@@ -28,8 +33,11 @@ public class Item {
 	private String name;
 	
 	@Column(nullable = false)
+	@Convert(converter = MoneyConverter.class)
 	@JsonProperty
-	private BigDecimal price;
+	@JsonSerialize(using = MoneySerializer.class)
+	@JsonDeserialize(using = MoneyDeserializer.class)
+	private long price;
 	
 	@Column(nullable = false)
 	@JsonProperty
@@ -76,11 +84,22 @@ public class Item {
 		this.name = name;
 	}
 
+	@JsonIgnore
 	public BigDecimal getPrice() {
-		return price;
+		return Money.toBigDecimal(price);
 	}
 
+	@JsonIgnore
 	public void setPrice(BigDecimal price) {
+		this.price = Money.toCents(price);
+	}
+
+	@JsonIgnore
+	public long getPriceCents() {
+		return price;
+	}
+
+	public void setPriceCents(long price) {
 		this.price = price;
 	}
 
@@ -97,7 +116,7 @@ public class Item {
 		return "Item{" +
 				"id=" + id +
 				", name='" + name + '\'' +
-				", price=" + price +
+				", price=" + Money.toString(price) +
 				", description='" + description + '\'' +
 				'}';
 	}
@@ -0,0 +1,38 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts of money as a number of cents in a {@code long}, so that cart and order totals are kept up to date without
+ * allocating. Amounts are only turned into a {@link BigDecimal} at the edges: in the database, where they stay
+ * {@code decimal} columns (see {@link MoneyConverter}), in JSON, where they are the same numbers as before (see
+ * {@link MoneySerializer}), and for callers that still deal in {@link BigDecimal}.
+ */
+public final class Money {
+
+	public static final int SCALE = 2;
+
+	private Money() {
+	}
+
+	/**
+	 * The amount in cents, failing with an {@link ArithmeticException} if it has a fraction of a cent or does not
+	 * fit in a {@code long}.
+	 */
+	public static long toCents(BigDecimal amount) {
+		return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+	}
+
+	public static BigDecimal toBigDecimal(long cents) {
+		return BigDecimal.valueOf(cents, SCALE);
+	}
+
+	public static long times(long cents, int quantity) {
+		return Math.multiplyExact(cents, quantity);
+	}
+
+	public static String toString(long cents) {
+		return toBigDecimal(cents).toPlainString();
+	}
+}
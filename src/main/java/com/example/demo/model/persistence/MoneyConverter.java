@@ -0,0 +1,24 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores an amount in cents in the {@code decimal} column it has always had. A {@code null} column, which older rows
+ * may have, reads as zero.
+ */
+@Converter
+public class MoneyConverter implements AttributeConverter<Long, BigDecimal> {
+
+	@Override
+	public BigDecimal convertToDatabaseColumn(Long cents) {
+		return cents == null ? null : Money.toBigDecimal(cents);
+	}
+
+	@Override
+	public Long convertToEntityAttribute(BigDecimal amount) {
+		return amount == null ? 0L : Money.toCents(amount);
+	}
+}
@@ -0,0 +1,40 @@
+package com.example.demo.model.persistence;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * Reads back what {@link MoneySerializer} writes, a decimal number or a string holding one, as cents.
+ */
+public class MoneyDeserializer extends StdDeserializer<Long> {
+
+	private static final long serialVersionUID = 1L;
+
+	public MoneyDeserializer() {
+		super(Long.class);
+	}
+
+	@Override
+	public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+		BigDecimal amount;
+		if(p.hasToken(JsonToken.VALUE_STRING)) {
+			try {
+				amount = new BigDecimal(p.getText().trim());
+			} catch (NumberFormatException e) {
+				return (Long) ctxt.handleWeirdStringValue(Long.class, p.getText(), "not an amount");
+			}
+		} else {
+			amount = p.getDecimalValue();
+		}
+		try {
+			return Money.toCents(amount);
+		} catch (ArithmeticException e) {
+			return (Long) ctxt.handleWeirdNumberValue(Long.class, amount, "not a whole number of cents");
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.example.demo.model.persistence;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes an amount in cents as the decimal number clients have always been given, {@code 2.99} rather than
+ * {@code 299}.
+ */
+public class MoneySerializer extends StdSerializer<Long> {
+
+	private static final long serialVersionUID = 1L;
+
+	public MoneySerializer() {
+		super(Long.class);
+	}
+
+	@Override
+	public void serialize(Long cents, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		gen.writeNumber(Money.toString(cents));
+	}
+}
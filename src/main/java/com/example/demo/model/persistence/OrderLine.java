@@ -0,0 +1,145 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * An item of an order as it was when the order was submitted. The name and price are copied from the catalog and
+ * the item is only referred to by id, so that neither a later change to the catalog nor the order itself ever
+ * writes to the {@code item} table.
+ */
+@Entity
+@Immutable
+@Table(name = "order_line", indexes = @Index(name = "idx_order_line_order", columnList = "order_id"))
+public class OrderLine {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_line_seq")
+	@SequenceGenerator(name = "order_line_seq", sequenceName = "order_line_seq", allocationSize = 50)
+	@JsonProperty
+	private Long id;
+
+	@ManyToOne(optional = false, fetch = FetchType.LAZY)
+	@JoinColumn(name = "order_id", nullable = false, updatable = false)
+	@JsonIgnore
+	private UserOrder order;
+
+	@Column(name = "item_id", nullable = false, updatable = false)
+	@JsonProperty
+	private Long itemId;
+
+	@Column(nullable = false, updatable = false)
+	@JsonProperty
+	private String name;
+
+	@Column(nullable = false, updatable = false)
+	@Convert(converter = MoneyConverter.class)
+	@JsonProperty
+	@JsonSerialize(using = MoneySerializer.class)
+	@JsonDeserialize(using = MoneyDeserializer.class)
+	private long unitPrice;
+
+	@Column(nullable = false, updatable = false)
+	@JsonProperty
+	private int quantity;
+
+	protected OrderLine() {
+	}
+
+	public OrderLine(UserOrder order, Item item, int quantity) {
+		this.order = order;
+		this.itemId = item.getId();
+		this.name = item.getName();
+		this.unitPrice = item.getPriceCents();
+		this.quantity = quantity;
+	}
+
+	OrderLine(UserOrder order, OrderLine line) {
+		this.order = order;
+		this.itemId = line.itemId;
+		this.name = line.name;
+		this.unitPrice = line.unitPrice;
+		this.quantity = line.quantity;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public UserOrder getOrder() {
+		return order;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@JsonIgnore
+	public BigDecimal getUnitPrice() {
+		return Money.toBigDecimal(unitPrice);
+	}
+
+	@JsonIgnore
+	public long getUnitPriceCents() {
+		return unitPrice;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	@JsonIgnore
+	public BigDecimal getLineTotal() {
+		return Money.toBigDecimal(getLineTotalCents());
+	}
+
+	@JsonIgnore
+	public long getLineTotalCents() {
+		return Money.times(unitPrice, quantity);
+	}
+
+	/**
+	 * The item as it was ordered, detached from the catalog. It has no description, which is not kept.
+	 */
+	Item toItem() {
+		Item item = new Item();
+		item.setId(itemId);
+		item.setName(name);
+		item.setPriceCents(unitPrice);
+		return item;
+	}
+
+	@Override
+	public String toString() {
+		return "OrderLine{" +
+				"id=" + id +
+				", itemId=" + itemId +
+				", name='" + name + '\'' +
+				", unitPrice=" + Money.toString(unitPrice) +
+				", quantity=" + quantity +
+				'}';
+	}
+}
@@ -1,37 +1,76 @@
 package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.UUID;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
-import javax.persistence.JoinTable;
-import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 @Entity
-@Table(name = "user_order")
+@Table(name = "user_order", indexes = {
+		@Index(name = "idx_user_order_user_created", columnList = "user_id, created_at"),
+		@Index(name = "idx_user_order_reference", columnList = "reference", unique = true)
+})
+@NamedEntityGraph(name = UserOrder.WITH_LINES, attributeNodes = {
+		@NamedAttributeNode("lines"),
+		@NamedAttributeNode("user")
+})
+@JsonPropertyOrder({"id", "reference", "items", "user", "total", "itemCount", "createdAt"})
 public class UserOrder {
 
+	/**
+	 * Everything an order is rendered with, in a single select that does not read the catalog.
+	 */
+	public static final String WITH_LINES = "UserOrder.withLines";
+
+	/**
+	 * Ids come from a sequence, a block at a time, so that orders and their lines can be inserted in JDBC batches.
+	 */
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_order_seq")
+	@SequenceGenerator(name = "user_order_seq", sequenceName = "user_order_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
-	
-	@ManyToMany(cascade = CascadeType.ALL)
+
+	/**
+	 * Given when the order is submitted, before it has an id, so that it can be tracked while it waits to be
+	 * written.
+	 */
 	@JsonProperty
-	@Column
-    private List<Item> items;
+	@Column(nullable = false, updatable = false, length = 36)
+	private String reference;
+	
+	@OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
+	@OrderBy("id")
+	@JsonIgnore
+	private List<OrderLine> lines;
 	
 	@ManyToOne
 	@JoinColumn(name="user_id", nullable = false, referencedColumnName = "id")
@@ -39,8 +78,19 @@ public class UserOrder {
     private User user;
 	
 	@JsonProperty
+	@JsonSerialize(using = MoneySerializer.class)
+	@JsonDeserialize(using = MoneyDeserializer.class)
 	@Column
-	private BigDecimal total;
+	@Convert(converter = MoneyConverter.class)
+	private long total;
+
+	@JsonProperty
+	@Column
+	private Integer itemCount;
+
+	@JsonProperty
+	@Column(name = "created_at")
+	private Instant createdAt;
 
 	public Long getId() {
 		return id;
@@ -50,12 +100,48 @@ public class UserOrder {
 		this.id = id;
 	}
 
+	public String getReference() {
+		return reference;
+	}
+
+	public void setReference(String reference) {
+		this.reference = reference;
+	}
+
+	public List<OrderLine> getLines() {
+		if(lines == null) {
+			lines = new ArrayList<>();
+		}
+		return lines;
+	}
+
+	/**
+	 * One entry per unit, as orders have always been rendered to clients, with the name and price they were ordered
+	 * at.
+	 */
+	@JsonProperty
 	public List<Item> getItems() {
+		if(lines == null || lines.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Item> items = new ArrayList<>();
+		for (OrderLine line : lines) {
+			Item item = line.toItem();
+			for (int i = 0; i < line.getQuantity(); i++) {
+				items.add(item);
+			}
+		}
 		return items;
 	}
 
 	public void setItems(List<Item> items) {
-		this.items = items;
+		getLines().clear();
+		if(items == null) {
+			return;
+		}
+		Map<Item, Integer> quantities = new LinkedHashMap<>();
+		items.forEach(item -> quantities.merge(item, 1, Integer::sum));
+		quantities.forEach((item, quantity) -> lines.add(new OrderLine(this, item, quantity)));
 	}
 
 	public User getUser() {
@@ -66,19 +152,64 @@ public class UserOrder {
 		this.user = user;
 	}
 	
+	@JsonIgnore
 	public BigDecimal getTotal() {
-		return total;
+		return Money.toBigDecimal(total);
 	}
 
+	@JsonIgnore
 	public void setTotal(BigDecimal total) {
-		this.total = total;
+		this.total = Money.toCents(total);
+	}
+
+	@JsonIgnore
+	public long getTotalCents() {
+		return total;
+	}
+
+	public Integer getItemCount() {
+		return itemCount;
+	}
+
+	public void setItemCount(Integer itemCount) {
+		this.itemCount = itemCount;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
 	}
 
 	public static UserOrder createFromCart(Cart cart) {
 		UserOrder order = new UserOrder();
-		order.setItems(cart.getItems().stream().collect(Collectors.toList()));
-		order.setTotal(cart.getTotal());
+		order.setReference(UUID.randomUUID().toString());
+		for (CartLine line : cart.getLines()) {
+			order.getLines().add(new OrderLine(order, line.getItem(), line.getQuantity()));
+		}
+		order.total = cart.getTotalCents();
 		order.setUser(cart.getUser());
+		order.setItemCount(cart.getItemCount());
+		order.setCreatedAt(Instant.now());
+		return order;
+	}
+
+	/**
+	 * An order with the same reference, lines and totals that has not been persisted, for when persisting this one
+	 * was rolled back.
+	 */
+	public UserOrder copy() {
+		UserOrder order = new UserOrder();
+		order.setReference(reference);
+		for (OrderLine line : getLines()) {
+			order.getLines().add(new OrderLine(order, line));
+		}
+		order.total = total;
+		order.setUser(user);
+		order.setItemCount(itemCount);
+		order.setCreatedAt(createdAt);
 		return order;
 	}
 
@@ -86,9 +217,12 @@ public class UserOrder {
 	public String toString() {
 		return "UserOrder{" +
 				"id=" + id +
-				", items=" + items +
+				", reference='" + reference + '\'' +
+				", lines=" + lines +
 				", user=" + user +
-				", total=" + total +
+				", total=" + Money.toString(total) +
+				", itemCount=" + itemCount +
+				", createdAt=" + createdAt +
 				'}';
 	}
 }
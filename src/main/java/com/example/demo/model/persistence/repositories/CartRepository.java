@@ -1,10 +1,25 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
 	Cart findByUser(User user);
+
+	@EntityGraph(Cart.WITH_LINES)
+	Optional<Cart> findWithLinesById(Long id);
+
+	@EntityGraph(Cart.WITH_LINES)
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+	List<Cart> findDistinctWithLinesByIdIn(Collection<Long> ids);
 }
@@ -1,12 +1,29 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.demo.model.persistence.Item;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 public interface ItemRepository extends JpaRepository<Item, Long> {
 	public List<Item> findByName(String name);
 
+	public List<Item> findByNameIn(Collection<String> names);
+
+	public List<Item> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+	@Query("select i from Item i order by i.id")
+	public Stream<Item> streamAll();
+
 }
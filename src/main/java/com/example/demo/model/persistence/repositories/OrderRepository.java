@@ -1,12 +1,40 @@
 package com.example.demo.model.persistence.repositories;
 
 import java.util.List;
+import java.util.Optional;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.OrderSummary;
 
 public interface OrderRepository extends JpaRepository<UserOrder, Long> {
 	List<UserOrder> findByUser(User user);
+
+	/**
+	 * The distinct only de-duplicates the orders in memory, the joined rows are already distinct and there is no
+	 * point in having the database sort them.
+	 */
+	@EntityGraph(UserOrder.WITH_LINES)
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH, value = "false"))
+	List<UserOrder> findDistinctByUserId(long userId);
+
+	@EntityGraph(UserOrder.WITH_LINES)
+	Optional<UserOrder> findByIdAndUserId(Long id, long userId);
+
+	@Query("select o.id from UserOrder o where o.reference = :reference and o.user.id = :userId")
+	Optional<Long> findIdByReferenceAndUserId(@Param("reference") String reference, @Param("userId") long userId);
+
+	@Query("select new com.example.demo.model.responses.OrderSummary(o.id, o.total, o.itemCount, o.createdAt) "
+			+ "from UserOrder o where o.user.id = :userId order by o.createdAt desc, o.id desc")
+	Slice<OrderSummary> findSummariesByUserId(@Param("userId") long userId, Pageable pageable);
 }
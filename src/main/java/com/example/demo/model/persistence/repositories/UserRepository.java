@@ -1,9 +1,21 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Optional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.demo.model.persistence.User;
+import com.example.demo.model.responses.UserResponse;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 	User findByUsername(String username);
+
+	@Query("select new com.example.demo.model.responses.UserResponse(u.id, u.username) from User u where u.id = :id")
+	Optional<UserResponse> findResponseById(@Param("id") long id);
+
+	@Query("select new com.example.demo.model.responses.UserResponse(u.id, u.username) from User u "
+			+ "where u.username = :username")
+	Optional<UserResponse> findResponseByUsername(@Param("username") String username);
 }
@@ -0,0 +1,34 @@
+package com.example.demo.model.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class CartOperationFailure {
+
+	@JsonProperty
+	private int index;
+
+	@JsonProperty
+	private long itemId;
+
+	@JsonProperty
+	private String reason;
+
+	public CartOperationFailure(int index, long itemId, String reason) {
+		this.index = index;
+		this.itemId = itemId;
+		this.reason = reason;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public long getItemId() {
+		return itemId;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.Money;
+import com.example.demo.model.persistence.MoneySerializer;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * A cart as the cart endpoints answer with it. By default its {@code items} hold the item once per unit, as carts
+ * have always been rendered; the line view gives {@code lines} instead, one per item with its quantity, which stays
+ * small however many units a cart holds.
+ */
+@JsonPropertyOrder({"id", "items", "lines", "user", "total", "itemCount"})
+public class CartResponse {
+
+	@JsonProperty
+	private Long id;
+
+	@JsonProperty
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private List<Item> items;
+
+	@JsonProperty
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private List<LineResponse> lines;
+
+	@JsonProperty
+	private UserResponse user;
+
+	@JsonProperty
+	@JsonSerialize(using = MoneySerializer.class)
+	private long total;
+
+	@JsonProperty
+	private int itemCount;
+
+	private CartResponse(Cart cart) {
+		this.id = cart.getId();
+		this.user = UserResponse.of(cart.getUser());
+		this.total = cart.getTotalCents();
+		this.itemCount = cart.getItemCount();
+	}
+
+	public static CartResponse of(Cart cart, boolean lineView) {
+		CartResponse response = new CartResponse(cart);
+		if (lineView) {
+			response.lines = new ArrayList<>(cart.getLines().size());
+			for (CartLine line : cart.getLines()) {
+				response.lines.add(LineResponse.of(line));
+			}
+		} else {
+			response.items = cart.getItems();
+		}
+		return response;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	/**
+	 * {@code null} in the line view.
+	 */
+	public List<Item> getItems() {
+		return items;
+	}
+
+	/**
+	 * {@code null} unless in the line view.
+	 */
+	public List<LineResponse> getLines() {
+		return lines;
+	}
+
+	public UserResponse getUser() {
+		return user;
+	}
+
+	@JsonIgnore
+	public BigDecimal getTotal() {
+		return Money.toBigDecimal(total);
+	}
+
+	@JsonIgnore
+	public long getTotalCents() {
+		return total;
+	}
+
+	public int getItemCount() {
+		return itemCount;
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.example.demo.model.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ItemImportFailure {
+
+	@JsonProperty
+	private int line;
+
+	@JsonProperty
+	private String reason;
+
+	public ItemImportFailure(int line, String reason) {
+		this.line = line;
+		this.reason = reason;
+	}
+
+	public int getLine() {
+		return line;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.example.demo.model.responses;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Counts of an item import as it goes. Every failed row is counted, only the first ones are listed.
+ */
+public class ItemImportResult {
+
+	@JsonProperty
+	private long rows;
+
+	@JsonProperty
+	private long inserted;
+
+	@JsonProperty
+	private long updated;
+
+	@JsonProperty
+	private long failed;
+
+	@JsonProperty
+	private List<ItemImportFailure> failures = new ArrayList<>();
+
+	private final int maxFailures;
+
+	public ItemImportResult(int maxFailures) {
+		this.maxFailures = maxFailures;
+	}
+
+	public void rowRead() {
+		rows++;
+	}
+
+	public void rowFailed(int line, String reason) {
+		failed++;
+		if(failures.size() < maxFailures) {
+			failures.add(new ItemImportFailure(line, reason));
+		}
+	}
+
+	public void written(int inserted, int updated) {
+		this.inserted += inserted;
+		this.updated += updated;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getInserted() {
+		return inserted;
+	}
+
+	public long getUpdated() {
+		return updated;
+	}
+
+	public long getFailed() {
+		return failed;
+	}
+
+	public List<ItemImportFailure> getFailures() {
+		return failures;
+	}
+
+}
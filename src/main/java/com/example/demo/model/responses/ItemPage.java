@@ -0,0 +1,32 @@
+package com.example.demo.model.responses;
+
+import java.util.List;
+
+import com.example.demo.model.persistence.Item;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ItemPage {
+
+	@JsonProperty
+	private List<Item> items;
+
+	/**
+	 * Id to pass as {@code after} to read the next page, {@code null} on the last page.
+	 */
+	@JsonProperty
+	private Long next;
+
+	public ItemPage(List<Item> items, Long next) {
+		this.items = items;
+		this.next = next;
+	}
+
+	public List<Item> getItems() {
+		return items;
+	}
+
+	public Long getNext() {
+		return next;
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.example.demo.model.responses;
+
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.MoneySerializer;
+import com.example.demo.model.persistence.OrderLine;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * One item of a cart or an order with its quantity, what a line view renders instead of repeating the item once per
+ * unit.
+ */
+@JsonPropertyOrder({"itemId", "name", "price", "quantity", "lineTotal"})
+public class LineResponse {
+
+	@JsonProperty
+	private long itemId;
+
+	@JsonProperty
+	private String name;
+
+	@JsonProperty
+	@JsonSerialize(using = MoneySerializer.class)
+	private long price;
+
+	@JsonProperty
+	private int quantity;
+
+	@JsonProperty
+	@JsonSerialize(using = MoneySerializer.class)
+	private long lineTotal;
+
+	public LineResponse(long itemId, String name, long price, int quantity, long lineTotal) {
+		this.itemId = itemId;
+		this.name = name;
+		this.price = price;
+		this.quantity = quantity;
+		this.lineTotal = lineTotal;
+	}
+
+	public static LineResponse of(CartLine line) {
+		return new LineResponse(line.getItem().getId(), line.getItem().getName(), line.getItem().getPriceCents(),
+				line.getQuantity(), line.getLineTotalCents());
+	}
+
+	public static LineResponse of(OrderLine line) {
+		return new LineResponse(line.getItemId(), line.getName(), line.getUnitPriceCents(), line.getQuantity(),
+				line.getLineTotalCents());
+	}
+
+	public long getItemId() {
+		return itemId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@JsonIgnore
+	public long getPriceCents() {
+		return price;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	@JsonIgnore
+	public long getLineTotalCents() {
+		return lineTotal;
+	}
+
+}
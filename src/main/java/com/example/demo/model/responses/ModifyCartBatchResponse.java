@@ -0,0 +1,28 @@
+package com.example.demo.model.responses;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ModifyCartBatchResponse {
+
+	@JsonProperty
+	private CartResponse cart;
+
+	@JsonProperty
+	private List<CartOperationFailure> failures;
+
+	public ModifyCartBatchResponse(CartResponse cart, List<CartOperationFailure> failures) {
+		this.cart = cart;
+		this.failures = failures;
+	}
+
+	public CartResponse getCart() {
+		return cart;
+	}
+
+	public List<CartOperationFailure> getFailures() {
+		return failures;
+	}
+
+}
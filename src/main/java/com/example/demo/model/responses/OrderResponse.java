@@ -0,0 +1,127 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.Money;
+import com.example.demo.model.persistence.MoneySerializer;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.UserOrder;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * An order as the order endpoints answer with it, with its {@code items} once per unit or, in the line view, its
+ * {@code lines}. See {@link CartResponse}.
+ */
+@JsonPropertyOrder({"id", "reference", "items", "lines", "user", "total", "itemCount", "createdAt"})
+public class OrderResponse {
+
+	@JsonProperty
+	private Long id;
+
+	@JsonProperty
+	private String reference;
+
+	@JsonProperty
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private List<Item> items;
+
+	@JsonProperty
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private List<LineResponse> lines;
+
+	@JsonProperty
+	private UserResponse user;
+
+	@JsonProperty
+	@JsonSerialize(using = MoneySerializer.class)
+	private long total;
+
+	@JsonProperty
+	private Integer itemCount;
+
+	@JsonProperty
+	private Instant createdAt;
+
+	private OrderResponse(UserOrder order) {
+		this.id = order.getId();
+		this.reference = order.getReference();
+		this.user = UserResponse.of(order.getUser());
+		this.total = order.getTotalCents();
+		this.itemCount = order.getItemCount();
+		this.createdAt = order.getCreatedAt();
+	}
+
+	public static OrderResponse of(UserOrder order, boolean lineView) {
+		OrderResponse response = new OrderResponse(order);
+		if (lineView) {
+			response.lines = new ArrayList<>(order.getLines().size());
+			for (OrderLine line : order.getLines()) {
+				response.lines.add(LineResponse.of(line));
+			}
+		} else {
+			response.items = order.getItems();
+		}
+		return response;
+	}
+
+	public static List<OrderResponse> of(List<UserOrder> orders, boolean lineView) {
+		List<OrderResponse> responses = new ArrayList<>(orders.size());
+		for (UserOrder order : orders) {
+			responses.add(of(order, lineView));
+		}
+		return responses;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	/**
+	 * {@code null} in the line view.
+	 */
+	public List<Item> getItems() {
+		return items;
+	}
+
+	/**
+	 * {@code null} unless in the line view.
+	 */
+	public List<LineResponse> getLines() {
+		return lines;
+	}
+
+	public UserResponse getUser() {
+		return user;
+	}
+
+	@JsonIgnore
+	public BigDecimal getTotal() {
+		return Money.toBigDecimal(total);
+	}
+
+	@JsonIgnore
+	public long getTotalCents() {
+		return total;
+	}
+
+	public Integer getItemCount() {
+		return itemCount;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+}
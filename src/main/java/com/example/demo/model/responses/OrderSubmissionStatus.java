@@ -0,0 +1,38 @@
+package com.example.demo.model.responses;
+
+import com.example.demo.order.OrderSubmissionQueue;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Where an order submitted asynchronously is, it only has an id once it is {@code SUBMITTED}.
+ */
+public class OrderSubmissionStatus {
+
+	@JsonProperty
+	private String reference;
+
+	@JsonProperty
+	private OrderSubmissionQueue.State state;
+
+	@JsonProperty
+	private Long orderId;
+
+	public OrderSubmissionStatus(String reference, OrderSubmissionQueue.State state, Long orderId) {
+		this.reference = reference;
+		this.state = state;
+		this.orderId = orderId;
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	public OrderSubmissionQueue.State getState() {
+		return state;
+	}
+
+	public Long getOrderId() {
+		return orderId;
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.example.demo.model.persistence.Money;
+import com.example.demo.model.persistence.MoneySerializer;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * Row of the order history list, read straight from the {@code user_order} table.
+ */
+public class OrderSummary {
+
+	@JsonProperty
+	private Long id;
+
+	@JsonProperty
+	@JsonSerialize(using = MoneySerializer.class)
+	private long total;
+
+	@JsonProperty
+	private Integer itemCount;
+
+	@JsonProperty
+	private Instant createdAt;
+
+	public OrderSummary(Long id, Long total, Integer itemCount, Instant createdAt) {
+		this.id = id;
+		this.total = total;
+		this.itemCount = itemCount;
+		this.createdAt = createdAt;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	@JsonIgnore
+	public BigDecimal getTotal() {
+		return Money.toBigDecimal(total);
+	}
+
+	@JsonIgnore
+	public long getTotalCents() {
+		return total;
+	}
+
+	public Integer getItemCount() {
+		return itemCount;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.example.demo.model.responses;
+
+import com.example.demo.model.persistence.User;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * A user as clients see it, without the password hash or the cart.
+ */
+@JsonPropertyOrder({"id", "username"})
+public class UserResponse {
+
+	@JsonProperty
+	private long id;
+
+	@JsonProperty
+	private String username;
+
+	public UserResponse(long id, String username) {
+		this.id = id;
+		this.username = username;
+	}
+
+	public static UserResponse of(User user) {
+		return user == null ? null : new UserResponse(user.getId(), user.getUsername());
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+}
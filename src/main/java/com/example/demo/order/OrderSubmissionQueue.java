@@ -0,0 +1,254 @@
+package com.example.demo.order;
+
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Takes submitted orders off the request threads when {@code order.submit.async} is set. Orders wait in a bounded
+ * queue, at most {@code order.submit.queue-capacity} of them, and a single writer thread persists them up to
+ * {@code order.submit.batch-size} at a time, each batch in one transaction and one JDBC batch per table. When the
+ * queue is full, {@link #offer(UserOrder)} refuses the order right away rather than making the client wait.
+ * <p>
+ * An order can be tracked by its reference: it is {@link State#QUEUED} until its batch is committed, then it is read
+ * from the database. On shutdown, new orders are refused and the queue is drained before the database goes away,
+ * for at most {@code order.submit.shutdown-timeout-seconds}. Orders still queued when the process dies are lost.
+ */
+@Component
+public class OrderSubmissionQueue implements MeterBinder {
+
+    /**
+     * Where a submitted order is, the queue itself only ever reports the first and the last.
+     */
+    public enum State {
+        QUEUED, SUBMITTED, FAILED
+    }
+
+    private static final int MAX_FAILED = 1024;
+    private static final long POLL_MILLIS = 200;
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderSubmissionQueue.class);
+
+    private final OrderRepository orderRepository;
+    private final OrderVersions orderVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long shutdownTimeoutMillis;
+    private final BlockingQueue<UserOrder> queue;
+    private final Map<String, UserOrder> pending = new ConcurrentHashMap<>();
+    private final Map<String, Long> failed = Collections.synchronizedMap(new LinkedHashMap<String, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_FAILED;
+        }
+    });
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    // held to queue an order and to stop accepting them, so that no order is queued after the final drain
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private volatile boolean accepting = true;
+    private volatile Thread writer;
+    private volatile DistributionSummary batchSizes;
+
+    @Autowired
+    public OrderSubmissionQueue(OrderRepository orderRepository, OrderVersions orderVersions,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${order.submit.async:false}") boolean enabled,
+                                @Value("${order.submit.queue-capacity:1024}") int queueCapacity,
+                                @Value("${order.submit.batch-size:50}") int batchSize,
+                                @Value("${order.submit.shutdown-timeout-seconds:30}") long shutdownTimeoutSeconds) {
+        this.orderRepository = orderRepository;
+        this.orderVersions = orderVersions;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.shutdownTimeoutMillis = TimeUnit.SECONDS.toMillis(shutdownTimeoutSeconds);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || writer != null) {
+            return;
+        }
+        writer = new Thread(this::drain, "order-writer");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Writing submitted orders asynchronously, {} at a time", batchSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the order to be written, returns {@code false} when the queue is full or shutting down. The queue
+     * writes a copy, so that the caller can go on rendering the order while it is persisted.
+     */
+    public boolean offer(UserOrder order) {
+        UserOrder copy = order.copy();
+        pending.put(copy.getReference(), copy);
+        acceptLock.readLock().lock();
+        try {
+            if (accepting && queue.offer(copy)) {
+                return true;
+            }
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        pending.remove(order.getReference());
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * The state of an order the queue still knows about, {@code null} once it is written or if it is not one of
+     * the user's orders.
+     */
+    public State stateOf(String reference, long userId) {
+        UserOrder order = pending.get(reference);
+        if (order != null) {
+            return order.getUser().getId() == userId ? State.QUEUED : null;
+        }
+        Long failedUserId = failed.get(reference);
+        return failedUserId != null && failedUserId == userId ? State.FAILED : null;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("order.submissions.queued", queue, BlockingQueue::size)
+                .description("Submitted orders waiting to be written")
+                .register(registry);
+        FunctionCounter.builder("order.submissions.rejected", rejected, AtomicLong::get)
+                .description("Submitted orders refused because the queue was full")
+                .register(registry);
+        FunctionCounter.builder("order.submissions.failed", failures, AtomicLong::get)
+                .description("Submitted orders that could not be written")
+                .register(registry);
+        batchSizes = DistributionSummary.builder("order.submissions.batch")
+                .description("Orders written per transaction")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        acceptLock.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        Thread thread = writer;
+        if (thread == null) {
+            return;
+        }
+        thread.join(shutdownTimeoutMillis);
+        if (thread.isAlive()) {
+            logger.error("{} submitted orders were not written before shutdown", queue.size());
+            return;
+        }
+        // anything queued while the writer was stopping, nothing can be queued any more
+        List<UserOrder> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        write(rest);
+    }
+
+    private void drain() {
+        List<UserOrder> batch = new ArrayList<>(batchSize);
+        while (accepting || !queue.isEmpty()) {
+            try {
+                // wakes up now and then to notice a shutdown
+                UserOrder first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+            write(batch);
+            batch.clear();
+        }
+        logger.info("Order queue drained");
+    }
+
+    private void write(List<UserOrder> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.execute(status -> orderRepository.saveAll(batch));
+        } catch (RuntimeException e) {
+            logger.warn("Could not write {} orders at once, writing them one by one", batch.size(), e);
+            batch.forEach(this::writeOne);
+            return;
+        } finally {
+            if (batchSizes != null) {
+                batchSizes.record(batch.size());
+            }
+        }
+        batch.forEach(this::written);
+    }
+
+    private void written(UserOrder order) {
+        orderVersions.changed(order.getUser().getId());
+        pending.remove(order.getReference());
+    }
+
+    private void writeOne(UserOrder order) {
+        try {
+            // the failed batch left ids on the order and its lines
+            UserOrder copy = order.copy();
+            transactionTemplate.execute(status -> orderRepository.save(copy));
+            orderVersions.changed(order.getUser().getId());
+        } catch (RuntimeException e) {
+            logger.error("Order {} of user {} could not be written", order.getReference(), order.getUser().getId(), e);
+            failures.incrementAndGet();
+            failed.put(order.getReference(), order.getUser().getId());
+        } finally {
+            pending.remove(order.getReference());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.order;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory version of each user's order history, which changes once a new order of the user is committed, so that
+ * a client that already has the history can be told it is current without reading it again. Versions are only kept
+ * for {@code order.versions.max-entries} users; when there are more, all of them are forgotten and every history
+ * gets a new version, which costs each client one full response.
+ * <p>
+ * Versions start over with the process, the tags given out carry the time it started so that they are not mistaken
+ * for tags of an earlier run.
+ */
+@Component
+public class OrderVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final int maxEntries;
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private volatile long floor;
+
+    public OrderVersions(@Value("${order.versions.max-entries:100000}") int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Records that the user's history changed, once the current transaction commits if there is one: a client
+     * reading the history before then must not get the new version along with the old orders.
+     */
+    public void changed(long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    bump(userId);
+                }
+            });
+        } else {
+            bump(userId);
+        }
+    }
+
+    /**
+     * The entity tag of the user's order history as it is now.
+     */
+    public String tagOf(long userId) {
+        Long version = versions.get(userId);
+        return epoch + "-" + (version != null ? version : floor);
+    }
+
+    private void bump(long userId) {
+        if (versions.size() >= maxEntries && !versions.containsKey(userId)) {
+            floor = clock.incrementAndGet();
+            versions.clear();
+        }
+        // concurrent changes of the same history must not leave it at the older of their versions
+        versions.merge(userId, clock.incrementAndGet(), Math::max);
+    }
+}
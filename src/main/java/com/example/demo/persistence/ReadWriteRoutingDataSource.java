@@ -0,0 +1,122 @@
+package com.example.demo.persistence;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Sends the connections of read-only transactions to a replica and everything else to the primary. The decision is
+ * made when the connection is taken, so this has to sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: a transaction only knows it is
+ * read-only once it has begun, after the transaction manager asked for its connection.
+ * <p>
+ * A user whose write was committed less than {@code readYourWritesMillis} ago keeps reading from the primary, so that
+ * they see their own changes while the replica catches up; the window has to be longer than the replica lags.
+ * Reads that must never see a stale row, such as those filling a cache, are made in {@link #onPrimary(Supplier)}.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private static final int PRUNE_ABOVE = 10_000;
+
+    private static final ThreadLocal<Integer> pinned = ThreadLocal.withInitial(() -> 0);
+
+    private final long readYourWritesNanos;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long readYourWritesMillis) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Target.PRIMARY, primary);
+        targets.put(Target.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        this.readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesMillis);
+    }
+
+    /**
+     * Runs the reads on the primary, whatever transaction they start. A transaction that already has its connection
+     * keeps it.
+     */
+    public static <T> T onPrimary(Supplier<T> reads) {
+        pinned.set(pinned.get() + 1);
+        try {
+            return reads.get();
+        } finally {
+            int depth = pinned.get() - 1;
+            if (depth == 0) {
+                pinned.remove();
+            } else {
+                pinned.set(depth);
+            }
+        }
+    }
+
+    public static void onPrimary(Runnable reads) {
+        onPrimary(() -> {
+            reads.run();
+            return null;
+        });
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return route();
+    }
+
+    Target route() {
+        String user = currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (user != null && readYourWritesNanos > 0
+                    && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        wrote(user);
+                    }
+                });
+            }
+            return Target.PRIMARY;
+        }
+        if (pinned.get() > 0 || (user != null && wroteRecently(user))) {
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+
+    private void wrote(String user) {
+        long now = System.nanoTime();
+        if (lastWrites.size() > PRUNE_ABOVE) {
+            lastWrites.values().removeIf(at -> now - at >= readYourWritesNanos);
+        }
+        lastWrites.put(user, now);
+    }
+
+    private boolean wroteRecently(String user) {
+        Long at = lastWrites.get(user);
+        if (at == null) {
+            return false;
+        }
+        if (System.nanoTime() - at < readYourWritesNanos) {
+            return true;
+        }
+        lastWrites.remove(user, at);
+        return false;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || !authentication.isAuthenticated() ? null : authentication.getName();
+    }
+}
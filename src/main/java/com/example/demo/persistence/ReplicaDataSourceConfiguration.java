@@ -0,0 +1,90 @@
+package com.example.demo.persistence;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+/**
+ * Adds a pool of connections to a read replica when {@code datasource.replica.url} is set. The primary pool is the
+ * one {@code spring.datasource} describes, the replica pool logs in with the same user unless
+ * {@code datasource.replica.username} and {@code datasource.replica.password} say otherwise and holds at most
+ * {@code datasource.replica.maximum-pool-size} connections. The application sees one {@link DataSource} that routes
+ * read-only transactions to the replica, see {@link ReadWriteRoutingDataSource}.
+ * <p>
+ * The pools are not beans of their own: Spring Boot initializes the database as soon as a data source bean is ready,
+ * through the one data source the application uses. Without a replica, Spring Boot's single data source is used as
+ * before.
+ */
+@Configuration
+@ConditionalOnProperty("datasource.replica.url")
+public class ReplicaDataSourceConfiguration implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaDataSourceConfiguration.class);
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final long readYourWritesMillis;
+
+    public ReplicaDataSourceConfiguration(DataSourceProperties properties, Environment environment,
+                                          @Value("${datasource.replica.url}") String url,
+                                          @Value("${datasource.replica.username:#{null}}") String username,
+                                          @Value("${datasource.replica.password:#{null}}") String password,
+                                          @Value("${datasource.replica.maximum-pool-size:10}") int maximumPoolSize,
+                                          @Value("${datasource.replica.read-your-writes-millis:5000}") long readYourWritesMillis) {
+        this.primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        this.primary.setPoolName("primary");
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+
+        this.replica = new HikariDataSource();
+        this.replica.setPoolName("replica");
+        this.replica.setJdbcUrl(url);
+        this.replica.setUsername(username != null ? username : properties.determineUsername());
+        this.replica.setPassword(password != null ? password : properties.determinePassword());
+        this.replica.setMaximumPoolSize(maximumPoolSize);
+        this.replica.setReadOnly(true);
+        this.readYourWritesMillis = readYourWritesMillis;
+    }
+
+    @Bean
+    public DataSource dataSource() {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, readYourWritesMillis);
+        routing.afterPropertiesSet();
+        logger.info("Routing read-only transactions to the replica at {}, writers read their writes for {} ms",
+                replica.getJdbcUrl(), readYourWritesMillis);
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    HikariDataSource getPrimary() {
+        return primary;
+    }
+
+    HikariDataSource getReplica() {
+        return replica;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        primary.setMetricRegistry(registry);
+        replica.setMetricRegistry(registry);
+    }
+
+    @PreDestroy
+    public void close() {
+        replica.close();
+        primary.close();
+    }
+}
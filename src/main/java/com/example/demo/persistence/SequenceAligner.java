@@ -0,0 +1,72 @@
+package com.example.demo.persistence;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Moves every id sequence past the largest id of its table at startup, before anything is inserted through it.
+ * Rows written with explicit ids, by {@code data.sql} or back when the tables used identity columns, would otherwise
+ * collide with the first ids the sequences hand out.
+ * <p>
+ * The next value of a sequence is read from H2's {@code information_schema}. On a database that does not have it,
+ * the sequences are moved whenever their table has rows.
+ */
+@Component
+public class SequenceAligner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceAligner.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    public SequenceAligner(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void align() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            IdentifierGenerator generator = persister.getIdentifierGenerator();
+            if (generator instanceof SequenceStyleGenerator && persister instanceof AbstractEntityPersister) {
+                AbstractEntityPersister entity = (AbstractEntityPersister) persister;
+                align(((SequenceStyleGenerator) generator).getDatabaseStructure().getName(), entity.getTableName(),
+                        entity.getIdentifierColumnNames()[0]);
+            }
+        }
+    }
+
+    private void align(String sequence, String table, String idColumn) {
+        Long max = jdbcTemplate.queryForObject("select max(" + idColumn + ") from " + table, Long.class);
+        if (max == null) {
+            return;
+        }
+        Long next = nextValue(sequence);
+        if (next != null && next > max) {
+            return;
+        }
+        jdbcTemplate.execute("alter sequence " + sequence + " restart with " + (max + 1));
+        logger.info("Sequence {} restarted at {}, past the ids of {}", sequence, max + 1, table);
+    }
+
+    private Long nextValue(String sequence) {
+        try {
+            return jdbcTemplate.queryForObject("select current_value + increment from information_schema.sequences "
+                    + "where upper(sequence_name) = upper(?)", Long.class, sequence);
+        } catch (DataAccessException e) {
+            return null;
+        }
+    }
+}
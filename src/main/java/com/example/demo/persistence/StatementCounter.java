@@ -0,0 +1,42 @@
+package com.example.demo.persistence;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, so that a request's database round trips can
+ * be checked. Registered through {@code hibernate.session_factory.statement_inspector}, the statements are passed
+ * through unchanged.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<Counts> COUNTS = ThreadLocal.withInitial(Counts::new);
+
+    @Override
+    public String inspect(String sql) {
+        Counts counts = COUNTS.get();
+        counts.statements++;
+        if (sql.regionMatches(true, 0, "select", 0, 6)) {
+            counts.selects++;
+        }
+        return sql;
+    }
+
+    public static void reset() {
+        Counts counts = COUNTS.get();
+        counts.statements = 0;
+        counts.selects = 0;
+    }
+
+    public static int getStatements() {
+        return COUNTS.get().statements;
+    }
+
+    public static int getSelects() {
+        return COUNTS.get().selects;
+    }
+
+    private static final class Counts {
+        private int statements;
+        private int selects;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs BCrypt on a small dedicated pool instead of on the request threads. At most {@code threads} hashes run at
+ * once and at most {@code queueCapacity} wait for their turn; past that, callers get a
+ * {@link PasswordHashingRejectedException} right away, so that a signup or login burst cannot hold every request
+ * thread and leave the rest of the API without any.
+ * <p>
+ * Unless a strength is configured, the BCrypt cost is calibrated at startup so that one hash takes about
+ * {@code security.password.target-hash-millis} on this machine. Hashes made with a lower cost are reported by
+ * {@link #upgradeEncoding(String)}, which makes Spring Security re-encode them on the next successful login.
+ */
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder, MeterBinder {
+
+    static final int MIN_STRENGTH = 10;
+    static final int MAX_STRENGTH = 16;
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    private final PasswordEncoder delegate;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile Timer encodeTimer;
+    private volatile Timer matchesTimer;
+
+    @Autowired
+    public BoundedPasswordEncoder(@Value("${security.password.strength:0}") int strength,
+                                  @Value("${security.password.target-hash-millis:250}") long targetHashMillis,
+                                  @Value("${security.password.threads:0}") int threads,
+                                  @Value("${security.password.queue-capacity:64}") int queueCapacity) {
+        this(strength > 0 ? strength : calibrate(targetHashMillis), threads, queueCapacity);
+    }
+
+    private BoundedPasswordEncoder(int strength, int threads, int queueCapacity) {
+        this(new BCryptPasswordEncoder(strength), strength, threads, queueCapacity);
+    }
+
+    BoundedPasswordEncoder(PasswordEncoder delegate, int strength, int threads, int queueCapacity) {
+        this.delegate = delegate;
+        this.strength = strength;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        logger.info("Hashing passwords with BCrypt strength {} on {} threads", strength, poolSize);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) < strength;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        encodeTimer = hashingTimer(registry, "encode");
+        matchesTimer = hashingTimer(registry, "matches");
+        Gauge.builder("security.password.pool.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password operations running")
+                .register(registry);
+        Gauge.builder("security.password.pool.queued", executor, pool -> pool.getQueue().size())
+                .description("Password operations waiting for a thread")
+                .register(registry);
+        FunctionCounter.builder("security.password.rejected", rejected, AtomicLong::get)
+                .description("Password operations rejected because the pool was saturated")
+                .register(registry);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the highest cost whose hash still takes no longer than the target, within
+     * [{@value #MIN_STRENGTH}, {@value #MAX_STRENGTH}]. Each step of the cost doubles the work, so it is enough to
+     * time the minimum cost.
+     */
+    static int calibrate(long targetHashMillis) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_STRENGTH);
+        encoder.encode("calibration");
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double ratio = (double) TimeUnit.MILLISECONDS.toNanos(targetHashMillis) / best;
+        int strength = MIN_STRENGTH + (ratio < 1 ? 0 : (int) Math.floor(Math.log(ratio) / Math.log(2)));
+        strength = Math.min(MAX_STRENGTH, strength);
+        logger.info("Calibrated BCrypt strength {} for a target of {} ms, strength {} takes {} ms",
+                strength, targetHashMillis, MIN_STRENGTH, TimeUnit.NANOSECONDS.toMillis(best));
+        return strength;
+    }
+
+    private <T> T run(Callable<T> task, Timer timer) {
+        Future<T> future;
+        try {
+            future = executor.submit(timer == null ? task : () -> timer.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new PasswordHashingRejectedException();
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Timer hashingTimer(MeterRegistry registry, String operation) {
+        return Timer.builder("security.password.hashing")
+                .description("Time spent in BCrypt, not counting the wait for a thread")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
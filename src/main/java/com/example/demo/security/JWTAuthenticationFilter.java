@@ -3,6 +3,8 @@ package com.example.demo.security;
 import com.auth0.jwt.JWT;
 import com.example.demo.model.persistence.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -28,8 +30,15 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
 
     private AuthenticationManager authenticationManager;
 
-    public JWTAuthenticationFilter(AuthenticationManager authenticationManager) {
+    private final Counter successes;
+    private final Counter failures;
+    private final Counter rejections;
+
+    public JWTAuthenticationFilter(AuthenticationManager authenticationManager, MeterRegistry meterRegistry) {
         this.authenticationManager = authenticationManager;
+        this.successes = loginCounter(meterRegistry, "success");
+        this.failures = loginCounter(meterRegistry, "failure");
+        this.rejections = loginCounter(meterRegistry, "rejected");
     }
 
     @Override
@@ -41,8 +50,7 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
             User userCredential = new ObjectMapper()
                     .readValue(req.getInputStream(), User.class);
 
-            logger.info("Trying to login with credentials : \n" + "Username :" + userCredential.getUsername()
-                    + "\n Password : " + userCredential.getPassword());
+            logger.debug("Trying to login as {}", userCredential.getUsername());
             //Attempt to authenticate the user given these credentials
             return authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
@@ -53,6 +61,13 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         } catch (IOException e) {
             logger.error("Could not authenticate the user");
             throw new RuntimeException(e);
+        } catch (PasswordHashingRejectedException e) {
+            // answered here, returning null tells the filter that the response is complete
+            logger.warn("Login rejected, the password hashing pool is saturated");
+            rejections.increment();
+            res.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            res.setHeader("Retry-After", "1");
+            return null;
         }
     }
 
@@ -62,21 +77,28 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
                                             FilterChain chain,
                                             Authentication auth) throws IOException, ServletException {
 
-        logger.info("User logged in successfully, trying to create JWT...");
-
         String token = JWT.create()
                 .withSubject(((org.springframework.security.core.userdetails.User) auth.getPrincipal()).getUsername())
                 .withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
                 .sign(HMAC512(SECRET.getBytes()));
         res.addHeader(HEADER_STRING, TOKEN_PREFIX + token);
-        logger.info("Token created successfully");
+        successes.increment();
+        logger.info("Token created for {}", auth.getName());
     }
 
     @Override
     protected void unsuccessfulAuthentication(HttpServletRequest request, HttpServletResponse response, AuthenticationException failed) throws IOException, ServletException {
         super.unsuccessfulAuthentication(request, response, failed);
+        failures.increment();
 
-        logger.error("Unable to login because of : " + failed.getMessage());
+        logger.info("Unable to login because of: {}", failed.getMessage());
         throw failed;
     }
+
+    private static Counter loginCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("security.login")
+                .description("Login attempts by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
 }
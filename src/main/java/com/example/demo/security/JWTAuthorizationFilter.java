@@ -1,7 +1,5 @@
 package com.example.demo.security;
 
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.algorithms.Algorithm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -22,8 +20,11 @@ public class JWTAuthorizationFilter extends BasicAuthenticationFilter {
 
     private Logger logger = LoggerFactory.getLogger(JWTAuthorizationFilter.class);
 
-    public JWTAuthorizationFilter(AuthenticationManager authenticationManager) {
+    private JWTTokenVerifier tokenVerifier;
+
+    public JWTAuthorizationFilter(AuthenticationManager authenticationManager, JWTTokenVerifier tokenVerifier) {
         super(authenticationManager);
+        this.tokenVerifier = tokenVerifier;
     }
 
     @Override
@@ -31,17 +32,14 @@ public class JWTAuthorizationFilter extends BasicAuthenticationFilter {
                                     HttpServletResponse res,
                                     FilterChain chain) throws IOException, ServletException {
 
-        logger.info("Checking for user  authorization......");
-
         String header = req.getHeader(HEADER_STRING);
 
         if (header == null || !header.startsWith(TOKEN_PREFIX)) {
-            logger.warn("Bearer not found int request header !!!!");
+            logger.debug("No bearer token in the request header");
             chain.doFilter(req, res);
             return;
         }
 
-        logger.info("Bearer found ......");
         UsernamePasswordAuthenticationToken authentication = getAuthentication(req);
 
         //set the spring security context with the existing credentials in the database
@@ -52,15 +50,11 @@ public class JWTAuthorizationFilter extends BasicAuthenticationFilter {
     private UsernamePasswordAuthenticationToken getAuthentication(HttpServletRequest request) {
         String token = request.getHeader(HEADER_STRING);
         if (token != null) {
-            logger.info("Token retrieved, trying to verify the token......");
             // parse the token.
-            String user = JWT.require(Algorithm.HMAC512(SECRET.getBytes()))
-                    .build()
-                    .verify(token.replace(TOKEN_PREFIX, ""))
-                    .getSubject();
+            String user = tokenVerifier.verify(token.replace(TOKEN_PREFIX, ""));
 
             if (user != null) {
-                logger.info("Token retrieved successfully");
+                logger.debug("Token verified for {}", user);
                 return new UsernamePasswordAuthenticationToken(user, null, new ArrayList<>());
             }
             return null;
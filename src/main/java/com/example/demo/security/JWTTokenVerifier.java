@@ -0,0 +1,160 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+import static com.example.demo.security.SecurityConstants.SECRET;
+
+/**
+ * Verifies JWTs with a single shared {@link JWTVerifier} and remembers the tokens it has already verified,
+ * so that a token seen again skips the HMAC check. A cached entry never outlives the token's {@code exp}
+ * claim and tokens without an expiry are never cached.
+ * <p>
+ * Only the full verifications are timed, a cache hit costs well under a microsecond.
+ */
+@Component
+public class JWTTokenVerifier implements MeterBinder {
+
+    private final JWTVerifier verifier;
+    private final Map<String, VerifiedToken> cache = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final LongSupplier clock;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private volatile Timer validTimer;
+    private volatile Timer invalidTimer;
+
+    @Autowired
+    public JWTTokenVerifier(@Value("${security.jwt.cache.max-entries:10000}") int maxEntries) {
+        this(maxEntries, System::currentTimeMillis);
+    }
+
+    JWTTokenVerifier(int maxEntries, LongSupplier clock) {
+        this.verifier = JWT.require(HMAC512(SECRET.getBytes())).build();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the subject of the given token.
+     *
+     * @throws JWTVerificationException if the token is malformed, has an invalid signature or is expired
+     */
+    public String verify(String token) {
+        long now = clock.getAsLong();
+        VerifiedToken cached = cache.get(token);
+        if (cached != null) {
+            if (now < cached.expiresAt) {
+                hits.incrementAndGet();
+                return cached.subject;
+            }
+            cache.remove(token, cached);
+        }
+        misses.incrementAndGet();
+
+        DecodedJWT decoded = verifyAndTime(token);
+        Date expiresAt = decoded.getExpiresAt();
+        if (expiresAt != null && maxEntries > 0) {
+            store(token, new VerifiedToken(decoded.getSubject(), expiresAt.getTime()), now);
+        }
+        return decoded.getSubject();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        validTimer = verificationTimer(registry, "valid");
+        invalidTimer = verificationTimer(registry, "invalid");
+    }
+
+    public void invalidate(String token) {
+        cache.remove(token);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private DecodedJWT verifyAndTime(String token) {
+        long start = System.nanoTime();
+        try {
+            DecodedJWT decoded = verifier.verify(token);
+            record(validTimer, start);
+            return decoded;
+        } catch (JWTVerificationException e) {
+            record(invalidTimer, start);
+            throw e;
+        }
+    }
+
+    private static void record(Timer timer, long start) {
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer verificationTimer(MeterRegistry registry, String result) {
+        return Timer.builder("security.jwt.verification")
+                .description("Full JWT signature verifications, cache hits are not included")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * Adds the token under the lock, so that concurrent verifications cannot push the cache past its bound. When the
+     * cache is full, expired entries are dropped first, then arbitrary ones until it is back under ninety percent of
+     * its bound.
+     */
+    private synchronized void store(String token, VerifiedToken verified, long now) {
+        if (cache.size() >= maxEntries && !cache.containsKey(token)) {
+            cache.values().removeIf(cached -> now >= cached.expiresAt);
+            int target = maxEntries - Math.max(1, maxEntries / 10);
+            Iterator<String> keys = cache.keySet().iterator();
+            while (cache.size() > target && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        cache.put(token, verified);
+    }
+
+    private static final class VerifiedToken {
+        private final String subject;
+        private final long expiresAt;
+
+        private VerifiedToken(String subject, long expiresAt) {
+            this.subject = subject;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
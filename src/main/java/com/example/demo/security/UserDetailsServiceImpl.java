@@ -2,7 +2,9 @@ package com.example.demo.security;
 
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.persistence.ReadWriteRoutingDataSource;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -12,19 +14,39 @@ import java.util.Objects;
 import static java.util.Collections.emptyList;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
     private UserRepository userRepository;
+    private UserIdentityCache identityCache;
 
-    public UserDetailsServiceImpl(UserRepository userRepository) {
+    public UserDetailsServiceImpl(UserRepository userRepository, UserIdentityCache identityCache) {
         this.userRepository = userRepository;
+        this.identityCache = identityCache;
     }
 
+    /**
+     * Reads the primary database, a user can log in right after signing up.
+     */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username);
+        User user = ReadWriteRoutingDataSource.onPrimary(() -> userRepository.findByUsername(username));
         if (Objects.isNull(user)) {
             throw new UsernameNotFoundException(username);
         }
+        identityCache.put(user);
         return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), emptyList());
     }
+
+    /**
+     * Called after a successful login when the stored hash was made with a lower BCrypt cost than the current one.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername());
+        if (Objects.isNull(user)) {
+            throw new UsernameNotFoundException(userDetails.getUsername());
+        }
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        return new org.springframework.security.core.userdetails.User(user.getUsername(), newPassword, emptyList());
+    }
 }
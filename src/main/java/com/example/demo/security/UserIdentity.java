@@ -0,0 +1,44 @@
+package com.example.demo.security;
+
+import com.example.demo.model.persistence.User;
+
+/**
+ * What the endpoints need to know about the authenticated user without loading the {@link User} entity.
+ */
+public final class UserIdentity {
+
+    private final long userId;
+    private final String username;
+    private final Long cartId;
+
+    public UserIdentity(long userId, String username, Long cartId) {
+        this.userId = userId;
+        this.username = username;
+        this.cartId = cartId;
+    }
+
+    public static UserIdentity of(User user) {
+        return new UserIdentity(user.getId(), user.getUsername(), user.getCart() == null ? null : user.getCart().getId());
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+
+    @Override
+    public String toString() {
+        return "UserIdentity{" +
+                "userId=" + userId +
+                ", username='" + username + '\'' +
+                ", cartId=" + cartId +
+                '}';
+    }
+}
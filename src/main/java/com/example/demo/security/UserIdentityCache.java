@@ -0,0 +1,96 @@
+package com.example.demo.security;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.persistence.ReadWriteRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded username to {@link UserIdentity} cache, filled on login and on signup and read by the endpoints instead of
+ * looking the user up by name on every request. Usernames and cart ids never change once a user exists, so entries
+ * only need to be evicted when a user is removed. A user missing from the cache is read from the primary database, so
+ * that one who just signed up is found before a replica has caught up.
+ */
+@Component
+public class UserIdentityCache {
+
+    private final UserRepository userRepository;
+    private final int maxEntries;
+
+    private final Map<String, UserIdentity> identities = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public UserIdentityCache(UserRepository userRepository,
+                             @Value("${security.identity-cache.max-entries:10000}") int maxEntries) {
+        this.userRepository = userRepository;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the identity of the given user, or {@code null} if there is no such user.
+     */
+    public UserIdentity resolve(String username) {
+        if (username == null) {
+            return null;
+        }
+        UserIdentity identity = identities.get(username);
+        if (identity != null) {
+            hits.incrementAndGet();
+            return identity;
+        }
+        misses.incrementAndGet();
+        User user = ReadWriteRoutingDataSource.onPrimary(() -> userRepository.findByUsername(username));
+        return user == null ? null : put(user);
+    }
+
+    public UserIdentity put(User user) {
+        UserIdentity identity = UserIdentity.of(user);
+        if (maxEntries <= 0) {
+            return identity;
+        }
+        if (identities.size() >= maxEntries && !identities.containsKey(user.getUsername())) {
+            evict();
+        }
+        identities.put(user.getUsername(), identity);
+        return identity;
+    }
+
+    public void evict(String username) {
+        identities.remove(username);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getDatabaseLookups() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public int size() {
+        return identities.size();
+    }
+
+    private synchronized void evict() {
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        Iterator<String> usernames = identities.keySet().iterator();
+        while (identities.size() > target && usernames.hasNext()) {
+            usernames.next();
+            usernames.remove();
+        }
+    }
+}
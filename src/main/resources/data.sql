@@ -1,2 +1,2 @@
-insert into item (name, price, description) values ('Round Widget', 2.99, 'A widget that is round');
-insert into item (name, price, description) values ('Square Widget', 1.99, 'A widget that is square');
\ No newline at end of file
+insert into item (id, name, price, description) values (1, 'Round Widget', 2.99, 'A widget that is round');
+insert into item (id, name, price, description) values (2, 'Square Widget', 1.99, 'A widget that is square');
@@ -1,5 +1,11 @@
 package com.example.demo;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
 import java.lang.reflect.Field;
 
 public class TestUtils {
@@ -25,4 +31,13 @@ public class TestUtils {
             e.printStackTrace();
         }
     }
+
+    public static WebRequest webRequest(String ifNoneMatch) {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
 }
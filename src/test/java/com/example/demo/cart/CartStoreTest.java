@@ -0,0 +1,248 @@
+package com.example.demo.cart;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class CartStoreTest {
+
+    private static final long CART_ID = 1L;
+
+    private CartRepository cartRepository = mock(CartRepository.class);
+
+    private Cart stored;
+
+    @Before
+    public void before() {
+        stored = getCart();
+        when(cartRepository.findWithLinesById(CART_ID)).thenReturn(Optional.of(getCart()));
+        when(cartRepository.findDistinctWithLinesByIdIn(anyCollection()))
+                .thenReturn(Collections.singletonList(stored));
+    }
+
+    @Test
+    public void changesStayInMemoryUntilFlushed() {
+
+        CartStore cartStore = store(60_000, 600);
+        Item item = getItem(1L);
+
+        cartStore.update(CART_ID, cart -> cart.addItem(item, 2));
+        Cart copy = cartStore.update(CART_ID, cart -> cart.addItem(item, 1));
+        cartStore.flushDue();
+
+        assertEquals(3, copy.getItemCount());
+        verify(cartRepository, times(1)).findWithLinesById(CART_ID);
+        verify(cartRepository, never()).findDistinctWithLinesByIdIn(any());
+        assertEquals(1, cartStore.getDirty());
+
+        cartStore.flush(CART_ID);
+
+        assertEquals(1, stored.getLines().size());
+        assertEquals(3, stored.getLines().get(0).getQuantity());
+        assertEquals(897L, stored.getTotalCents());
+        assertEquals(0, cartStore.getDirty());
+        assertEquals(1, cartStore.getWritten());
+    }
+
+    @Test
+    public void writtenCartsGetTheirLinesReplaced() {
+
+        CartStore cartStore = store(60_000, 600);
+        Item first = getItem(1L);
+        Item second = getItem(2L);
+        stored.addItem(first, 1);
+
+        cartStore.update(CART_ID, cart -> {
+            cart.addItem(second, 2);
+            cart.addItem(first, 1);
+        });
+        cartStore.update(CART_ID, cart -> cart.removeItem(first, 1));
+        CartLine storedFirstLine = stored.getLines().get(0);
+        cartStore.flushAll();
+
+        assertEquals(1, stored.getLines().size());
+        assertEquals(Long.valueOf(2L), stored.getLines().get(0).getItem().getId());
+        assertNotSame(storedFirstLine, stored.getLines().get(0));
+        assertEquals(598L, stored.getTotalCents());
+    }
+
+    @Test
+    public void cartsThatWaitedLongEnoughAreWrittenAndIdleOnesDropped() throws InterruptedException {
+
+        CartStore cartStore = store(2, 0);
+
+        cartStore.update(CART_ID, cart -> cart.addItem(getItem(1L), 1));
+        Thread.sleep(5);
+        cartStore.flushDue();
+
+        assertEquals(1, cartStore.getWritten());
+        assertEquals(1, cartStore.getSize());
+
+        cartStore.flushDue();
+
+        assertEquals(0, cartStore.getSize());
+    }
+
+    @Test
+    public void aCartThatIsNotWrittenIsKeptForTheNextFlush() {
+
+        CartStore cartStore = store(60_000, 600);
+        when(cartRepository.findDistinctWithLinesByIdIn(anyCollection()))
+                .thenThrow(new IllegalStateException("database is down"))
+                .thenReturn(Collections.singletonList(stored));
+
+        cartStore.update(CART_ID, cart -> cart.addItem(getItem(1L), 1));
+        cartStore.flushAll();
+
+        assertEquals(1, cartStore.getFailures());
+        assertEquals(1, cartStore.getDirty());
+
+        cartStore.flushAll();
+
+        assertEquals(0, cartStore.getDirty());
+        assertEquals(1, stored.getItemCount());
+    }
+
+    @Test
+    public void aCheckoutWaitsForTheWriteUnderWay() throws Exception {
+
+        CartStore cartStore = store(60_000, 600);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        when(cartRepository.findDistinctWithLinesByIdIn(anyCollection())).thenAnswer(invocation -> {
+            writing.countDown();
+            proceed.await();
+            return Collections.singletonList(stored);
+        });
+
+        cartStore.update(CART_ID, cart -> cart.addItem(getItem(1L), 1));
+        Thread flusher = new Thread(cartStore::flushAll);
+        flusher.start();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        cartStore.update(CART_ID, cart -> cart.addItem(getItem(2L), 1));
+        AtomicBoolean flushed = new AtomicBoolean();
+        Thread checkout = new Thread(() -> flushed.set(cartStore.flush(CART_ID)));
+        checkout.start();
+        checkout.join(100);
+
+        assertTrue(checkout.isAlive());
+        verify(cartRepository, times(1)).findDistinctWithLinesByIdIn(anyCollection());
+
+        proceed.countDown();
+        flusher.join(5000);
+        checkout.join(5000);
+
+        assertTrue(flushed.get());
+        assertEquals(0, cartStore.getDirty());
+        assertEquals(0, cartStore.getFailures());
+        assertEquals(2, stored.getItemCount());
+    }
+
+    @Test
+    public void aCartThatCannotBeWrittenIsNotCheckedOut() {
+
+        CartStore cartStore = store(60_000, 600);
+        when(cartRepository.findDistinctWithLinesByIdIn(anyCollection()))
+                .thenThrow(new IllegalStateException("database is down"));
+
+        cartStore.update(CART_ID, cart -> cart.addItem(getItem(1L), 1));
+
+        assertFalse(cartStore.flush(CART_ID));
+        assertEquals(3, cartStore.getFailures());
+        assertEquals(1, cartStore.getDirty());
+    }
+
+    @Test
+    public void cartsAreWrittenOnShutdownAndNotChangedAfter() throws Exception {
+
+        CartStore cartStore = store(60_000, 600);
+        cartStore.start();
+
+        cartStore.update(CART_ID, cart -> cart.addItem(getItem(1L), 1));
+        cartStore.shutdown();
+
+        assertEquals(1, stored.getItemCount());
+        try {
+            cartStore.update(CART_ID, cart -> cart.addItem(getItem(1L), 1));
+            fail("Expected the change to be refused");
+        } catch (CartStoreClosedException expected) {
+            assertEquals(1, stored.getItemCount());
+        }
+    }
+
+    @Test
+    public void aSlowReadDoesNotHoldUpTheOtherCarts() throws Exception {
+
+        // with 4 stripes, both carts share one
+        long otherCartId = CART_ID + 4;
+        CartStore cartStore = store(60_000, 600);
+        cartStore.update(CART_ID, cart -> cart.addItem(getItem(1L), 1));
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        Cart other = new Cart();
+        other.setId(otherCartId);
+        when(cartRepository.findWithLinesById(otherCartId)).thenAnswer(invocation -> {
+            reading.countDown();
+            proceed.await();
+            return Optional.of(other);
+        });
+
+        Thread reader = new Thread(() -> cartStore.update(otherCartId, cart -> cart.addItem(getItem(2L), 1)));
+        reader.start();
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        Cart copy = cartStore.update(CART_ID, cart -> cart.addItem(getItem(1L), 1));
+        proceed.countDown();
+        reader.join(5000);
+
+        assertEquals(2, copy.getItemCount());
+        assertEquals(2, cartStore.getSize());
+        assertEquals(2, cartStore.getDirty());
+    }
+
+    @Test
+    public void unknownCartsAreNotStored() {
+
+        CartStore cartStore = store(60_000, 600);
+
+        assertNull(cartStore.update(2L, cart -> fail("There is no cart to change")));
+        assertEquals(0, cartStore.getSize());
+    }
+
+    private CartStore store(long maxUnflushedMillis, long idleEvictSeconds) {
+        return new CartStore(cartRepository, mock(PlatformTransactionManager.class), true, maxUnflushedMillis, 100,
+                4, idleEvictSeconds);
+    }
+
+    private static Cart getCart() {
+        Cart cart = new Cart();
+        cart.setId(CART_ID);
+        return cart;
+    }
+
+    private static Item getItem(Long id) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName("Widget " + id);
+        item.setPrice(BigDecimal.valueOf(2.99));
+        item.setDescription("A widget");
+        return item;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.cart;
+
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class CartUpdatesTest {
+
+    private CartUpdates cartUpdates = new CartUpdates(mock(PlatformTransactionManager.class), 3, 1);
+
+    @Test
+    public void conflictingUpdatesAreRunAgain() {
+
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = cartUpdates.update(status -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Cart", 1L);
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, cartUpdates.getConflicts());
+        assertEquals(2, cartUpdates.getRetries());
+        assertEquals(0, cartUpdates.getExhausted());
+    }
+
+    @Test
+    public void updatesThatKeepConflictingGiveUp() {
+
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            cartUpdates.update(status -> {
+                attempts.incrementAndGet();
+                throw new ObjectOptimisticLockingFailureException("Cart", 1L);
+            });
+            fail("Expected a conflict");
+        } catch (CartUpdateConflictException e) {
+            assertTrue(e.getCause() instanceof ObjectOptimisticLockingFailureException);
+        }
+
+        assertEquals(3, attempts.get());
+        assertEquals(3, cartUpdates.getConflicts());
+        assertEquals(2, cartUpdates.getRetries());
+        assertEquals(1, cartUpdates.getExhausted());
+    }
+
+    @Test
+    public void otherFailuresAreNotRetried() {
+
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            cartUpdates.update(status -> {
+                attempts.incrementAndGet();
+                throw new DataIntegrityViolationException("constraint violated");
+            });
+            fail("Expected the failure to be thrown");
+        } catch (DataIntegrityViolationException e) {
+            assertEquals(1, attempts.get());
+            assertEquals(0, cartUpdates.getConflicts());
+        }
+    }
+}
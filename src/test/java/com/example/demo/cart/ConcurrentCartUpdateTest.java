@@ -0,0 +1,89 @@
+package com.example.demo.cart;
+
+import com.example.demo.controllers.CartController;
+import com.example.demo.controllers.UserController;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.requests.ModifyCartRequest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Several requests adding to the same cart at once, as from several browser tabs: none of the additions may be lost.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:concurrent-cart", "cart.update.max-attempts=50"})
+public class ConcurrentCartUpdateTest {
+
+    private static final String USERNAME = "tabs";
+    private static final int THREADS = 8;
+    private static final int ADDS_PER_THREAD = 10;
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private CartController cartController;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void concurrentAdditionsAreAllKept() throws Exception {
+
+        CreateUserRequest createUserRequest = new CreateUserRequest();
+        createUserRequest.setUsername(USERNAME);
+        createUserRequest.setPassword("password1");
+        createUserRequest.setPasswordConfirm("password1");
+        assertEquals(200, userController.createUser(createUserRequest).getStatusCodeValue());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long itemId = t % 2 + 1;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    ModifyCartRequest request = new ModifyCartRequest();
+                    request.setUsername(USERNAME);
+                    request.setItemId(itemId);
+                    request.setQuantity(1);
+                    assertEquals(200, cartController.addTocart(request, false).getStatusCodeValue());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Long cartId = userRepository.findByUsername(USERNAME).getCart().getId();
+        Cart cart = cartRepository.findWithLinesById(cartId).orElseThrow(AssertionError::new);
+        int quantity = cart.getLines().stream().mapToInt(CartLine::getQuantity).sum();
+        assertEquals(THREADS * ADDS_PER_THREAD, quantity);
+        assertEquals(2, cart.getLines().size());
+        assertEquals(THREADS * ADDS_PER_THREAD, cart.getVersion());
+    }
+}
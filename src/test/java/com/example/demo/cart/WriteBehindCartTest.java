@@ -0,0 +1,131 @@
+package com.example.demo.cart;
+
+import com.example.demo.controllers.CartController;
+import com.example.demo.controllers.OrderController;
+import com.example.demo.controllers.UserController;
+import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.OrderResponse;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Carts changed in memory only reach the database when they are flushed, at the latest on checkout.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:write-behind-cart",
+        "spring.datasource.hikari.maximum-pool-size=" + WriteBehindCartTest.POOL_SIZE,
+        "spring.datasource.hikari.connection-timeout=1000",
+        "cart.write-behind.enabled=true", "cart.write-behind.max-unflushed-millis=600000"})
+public class WriteBehindCartTest {
+
+    static final int POOL_SIZE = 4;
+
+    private static final String USERNAME = "behind";
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private CartController cartController;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void cartsAreWrittenOnCheckout() {
+
+        long cartId = createUser(USERNAME);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, addItem(USERNAME));
+        }
+
+        assertEquals(0, (int) jdbcTemplate.queryForObject("select count(*) from cart_line where cart_id = ?",
+                Integer.class, cartId));
+        assertEquals(1, cartStore.getDirty());
+
+        ResponseEntity<OrderResponse> response = orderController.submit(USERNAME, false);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(3, Objects.requireNonNull(response.getBody()).getItemCount().intValue());
+        assertEquals(3, (int) jdbcTemplate.queryForObject("select quantity from cart_line where cart_id = ?",
+                Integer.class, cartId));
+        assertEquals(0, new BigDecimal("8.97").compareTo(jdbcTemplate.queryForObject(
+                "select total from cart where id = ?", BigDecimal.class, cartId)));
+        assertEquals(0, cartStore.getDirty());
+    }
+
+    @Test
+    public void moreCheckoutsThanConnectionsGetThrough() throws Exception {
+
+        int checkouts = POOL_SIZE * 3;
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < checkouts; i++) {
+            String username = "behind-" + i;
+            createUser(username);
+            addItem(username);
+            usernames.add(username);
+        }
+        assertEquals(checkouts, cartStore.getDirty());
+
+        ExecutorService executor = Executors.newFixedThreadPool(checkouts);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (String username : usernames) {
+                statuses.add(executor.submit(() -> {
+                    start.await();
+                    return orderController.submit(username, false).getStatusCodeValue();
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> status : statuses) {
+                assertEquals(200, status.get(30, TimeUnit.SECONDS).intValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, cartStore.getDirty());
+        assertEquals(0, cartStore.getFailures());
+    }
+
+    private long createUser(String username) {
+        CreateUserRequest createUserRequest = new CreateUserRequest();
+        createUserRequest.setUsername(username);
+        createUserRequest.setPassword("password1");
+        createUserRequest.setPasswordConfirm("password1");
+        userController.createUser(createUserRequest);
+        return jdbcTemplate.queryForObject("select cart_id from user where username = ?", Long.class, username);
+    }
+
+    private int addItem(String username) {
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setUsername(username);
+        request.setItemId(1L);
+        request.setQuantity(1);
+        return Objects.requireNonNull(cartController.addTocart(request, false).getBody()).getItemCount();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ItemCatalogTest {
+
+    private static final String ROUND_WIDGET = "Round Widget";
+    private static final String SQUARE_WIDGET = "Square Widget";
+
+    private ItemRepository itemRepository = mock(ItemRepository.class);
+
+    private ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private ItemCatalog itemCatalog;
+
+    @Before
+    public void before() {
+        itemCatalog = new ItemCatalog(itemRepository, eventPublisher, 100);
+    }
+
+    @Test
+    public void findAllIsReadOnceAndSeedsTheIdMap() {
+
+        when(itemRepository.findAll()).thenReturn(Arrays.asList(getItem(1L, ROUND_WIDGET), getItem(2L, SQUARE_WIDGET)));
+
+        assertEquals(2, itemCatalog.findAll().size());
+        assertEquals(2, itemCatalog.findAll().size());
+        assertTrue(itemCatalog.findById(2L).isPresent());
+
+        verify(itemRepository, times(1)).findAll();
+        verify(itemRepository, never()).findById(any());
+        assertEquals(2, itemCatalog.getHits());
+        assertEquals(1, itemCatalog.getMisses());
+    }
+
+    @Test
+    public void findByNameIsCached() {
+
+        when(itemRepository.findByName(ROUND_WIDGET)).thenReturn(Collections.singletonList(getItem(1L, ROUND_WIDGET)));
+
+        itemCatalog.findByName(ROUND_WIDGET);
+        itemCatalog.findByName(ROUND_WIDGET);
+
+        verify(itemRepository, times(1)).findByName(ROUND_WIDGET);
+        assertEquals(0.5, itemCatalog.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void findAllByIdOnlyQueriesMissingIds() {
+
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(getItem(1L, ROUND_WIDGET)));
+        when(itemRepository.findAllById(Collections.singletonList(2L)))
+                .thenReturn(Collections.singletonList(getItem(2L, SQUARE_WIDGET)));
+
+        itemCatalog.findById(1L);
+        Map<Long, Item> items = itemCatalog.findAllById(Arrays.asList(1L, 2L));
+
+        assertEquals(2, items.size());
+        verify(itemRepository, times(1)).findAllById(Collections.singletonList(2L));
+    }
+
+    @Test
+    public void saveInvalidatesTheCachedEntries() {
+
+        Item item = getItem(1L, ROUND_WIDGET);
+        when(itemRepository.findAll()).thenReturn(Collections.singletonList(item));
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(itemRepository.save(item)).thenReturn(item);
+
+        itemCatalog.findAll();
+        itemCatalog.save(item);
+        itemCatalog.findAll();
+        itemCatalog.findById(1L);
+
+        verify(itemRepository, times(2)).findAll();
+        verify(eventPublisher).publishEvent(any(ItemsChangedEvent.class));
+    }
+
+    @Test
+    public void cacheStaysWithinItsBound() {
+
+        itemCatalog = new ItemCatalog(itemRepository, eventPublisher, 1);
+        when(itemRepository.findAll()).thenReturn(Arrays.asList(getItem(1L, ROUND_WIDGET), getItem(2L, SQUARE_WIDGET)));
+
+        itemCatalog.findAll();
+        itemCatalog.findAll();
+
+        verify(itemRepository, times(2)).findAll();
+        assertTrue(itemCatalog.size() <= 1);
+    }
+
+    private Item getItem(Long id, String name) {
+
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setDescription(name);
+        item.setPrice(BigDecimal.valueOf(2.99));
+        return item;
+    }
+}
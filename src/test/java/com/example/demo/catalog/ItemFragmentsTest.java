@@ -0,0 +1,119 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.CartResponse;
+import com.example.demo.model.responses.OrderResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ItemFragmentsTest {
+
+    private final ItemFragments fragments = new ItemFragments(100);
+    private final ObjectMapper plain = new ObjectMapper().findAndRegisterModules();
+    private final ObjectMapper spliced = new ObjectMapper().findAndRegisterModules().registerModule(fragments);
+
+    @Test
+    public void responsesAreWrittenAsBefore() throws Exception {
+
+        Cart cart = getCart();
+        UserOrder order = UserOrder.createFromCart(cart);
+        order.setId(1L);
+
+        assertEquals(plain.writeValueAsString(CartResponse.of(cart, false)),
+                spliced.writeValueAsString(CartResponse.of(cart, false)));
+        assertArrayEquals(plain.writeValueAsBytes(OrderResponse.of(order, false)),
+                spliced.writeValueAsBytes(OrderResponse.of(order, false)));
+        assertEquals(plain.writeValueAsString(cart.getItems()), spliced.writeValueAsString(cart.getItems()));
+    }
+
+    @Test
+    public void eachItemIsSerializedOnce() throws Exception {
+
+        Cart cart = getCart();
+
+        spliced.writeValueAsBytes(CartResponse.of(cart, false));
+        spliced.writeValueAsBytes(CartResponse.of(cart, false));
+
+        assertEquals(2, fragments.getMisses());
+        assertEquals(2 * 5 - 2, fragments.getHits());
+        assertEquals(2, fragments.size());
+    }
+
+    @Test
+    public void aChangedItemIsSerializedAgain() throws Exception {
+
+        Item item = getItem(1L);
+        spliced.writeValueAsString(item);
+
+        item.setPrice(BigDecimal.valueOf(3.49));
+        assertEquals(3.49, spliced.readTree(spliced.writeValueAsString(item)).get("price").asDouble(), 0);
+        assertEquals(2, fragments.getMisses());
+
+        // an item as it was ordered, without its description
+        Item ordered = getItem(1L);
+        ordered.setDescription(null);
+        assertTrue(spliced.readTree(spliced.writeValueAsString(ordered)).get("description").isNull());
+        assertEquals(3, fragments.getMisses());
+    }
+
+    @Test
+    public void changedItemsAreDropped() throws Exception {
+
+        spliced.writeValueAsString(getCart().getItems());
+        assertEquals(2, fragments.size());
+
+        fragments.onItemsChanged(new ItemsChangedEvent(Collections.singletonList(1L)));
+        assertEquals(1, fragments.size());
+
+        fragments.onItemsChanged(ItemsChangedEvent.fullRefresh());
+        assertEquals(0, fragments.size());
+    }
+
+    @Test
+    public void treesAndIndentedOutputAreSerializedAsUsual() throws Exception {
+
+        Cart cart = getCart();
+
+        JsonNode tree = spliced.valueToTree(CartResponse.of(cart, false));
+        assertEquals("Widget 1", tree.get("items").get(0).get("name").asText());
+        assertEquals(plain.writerWithDefaultPrettyPrinter().writeValueAsString(cart.getItems()),
+                spliced.writerWithDefaultPrettyPrinter().writeValueAsString(cart.getItems()));
+        assertEquals(plain.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(cart.getItems()),
+                spliced.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(cart.getItems()));
+        assertEquals(0, fragments.getHits() + fragments.getMisses());
+    }
+
+    private Cart getCart() {
+
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("herve");
+
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.setUser(user);
+        cart.addItem(getItem(1L), 3);
+        cart.addItem(getItem(2L), 2);
+        return cart;
+    }
+
+    private Item getItem(long id) {
+
+        Item item = new Item();
+        item.setId(id);
+        item.setName("Widget " + id);
+        item.setDescription("A widget that is \"round\", or é");
+        item.setPrice(BigDecimal.valueOf(2.99));
+        return item;
+    }
+}
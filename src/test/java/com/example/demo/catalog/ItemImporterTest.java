@@ -0,0 +1,206 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ItemImportResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class ItemImporterTest {
+
+    private static final String ROUND_WIDGET = "Round Widget";
+
+    private ItemRepository itemRepository = mock(ItemRepository.class);
+
+    private List<List<Item>> saved = new ArrayList<>();
+
+    private ItemImporter itemImporter;
+
+    @Before
+    public void before() {
+        when(itemRepository.findAllById(any())).thenReturn(Collections.emptyList());
+        when(itemRepository.findByNameIn(anyCollection())).thenReturn(Collections.emptyList());
+        when(itemRepository.saveAll(anyCollection())).thenAnswer(this::save);
+        itemImporter = importer(2, 100);
+    }
+
+    @Test
+    public void csvRowsAreInsertedInBatches() throws IOException {
+
+        ItemImportResult result = importItems("name,price,description\r\n"
+                + "Round Widget,2.99,A widget that is round\r\n"
+                + "\"Square, Widget\",1.99,\"A widget that is \"\"square\"\"\nand flat\"\r\n"
+                + "\r\n"
+                + "Oval Widget,3.50,\r\n", ItemImporter.Format.CSV);
+
+        assertEquals(3, result.getRows());
+        assertEquals(3, result.getInserted());
+        assertEquals(0, result.getFailed());
+        assertEquals(2, saved.size());
+        Item square = saved.get(0).get(1);
+        assertEquals("Square, Widget", square.getName());
+        assertEquals("A widget that is \"square\"\nand flat", square.getDescription());
+        assertEquals(new BigDecimal("3.50"), saved.get(1).get(0).getPrice());
+        assertEquals("", saved.get(1).get(0).getDescription());
+    }
+
+    @Test
+    public void rowsUpdateTheItemWithTheirIdOrName() throws IOException {
+
+        Item round = item(1L, ROUND_WIDGET, "2.99");
+        Item square = item(2L, "Square Widget", "1.99");
+        when(itemRepository.findByNameIn(anyCollection())).thenReturn(Collections.singletonList(round));
+        when(itemRepository.findAllById(any())).thenReturn(Collections.singletonList(square));
+
+        ItemImportResult result = importItems("{\"name\":\"Round Widget\",\"price\":3.10}\n"
+                + "{\"id\":2,\"description\":\"Now square\"}\n", ItemImporter.Format.NDJSON);
+
+        assertEquals(2, result.getUpdated());
+        assertEquals(0, result.getInserted());
+        assertEquals(new BigDecimal("3.10"), round.getPrice());
+        assertEquals("A widget", round.getDescription());
+        assertEquals("Square Widget", square.getName());
+        assertEquals("Now square", square.getDescription());
+        assertEquals(Arrays.asList(round, square), saved.get(0));
+    }
+
+    @Test
+    public void badRowsAreReportedAndTheOthersImported() throws IOException {
+
+        when(itemRepository.findByNameIn(anyCollection()))
+                .thenReturn(Arrays.asList(item(1L, ROUND_WIDGET, "2.99"), item(2L, ROUND_WIDGET, "1.99")));
+
+        ItemImportResult result = importer(100, 100).importItems(stream("id,name,price\n"
+                + ",Oval Widget,abc\n"
+                + ",Round Widget,1.00\n"
+                + "7,,1.00\n"
+                + ",Flat Widget,\n"
+                + ",Tall Widget,-1\n"
+                + ",Small Widget,0.50\n"), ItemImporter.Format.CSV);
+
+        assertEquals(6, result.getRows());
+        assertEquals(1, result.getInserted());
+        assertEquals(5, result.getFailed());
+        List<Integer> lines = new ArrayList<>();
+        result.getFailures().forEach(failure -> lines.add(failure.getLine()));
+        assertTrue(lines.containsAll(Arrays.asList(2, 3, 4, 5, 6)));
+        assertEquals("Small Widget", saved.get(0).get(0).getName());
+    }
+
+    @Test
+    public void aBatchThatCannotBeWrittenIsWrittenAgainRowByRow() throws IOException {
+
+        String tooLong = String.join("", Collections.nCopies(300, "x"));
+        doAnswer(invocation -> {
+            for (Item item : invocation.<Collection<Item>>getArgument(0)) {
+                if (item.getName().length() > 255) {
+                    throw new IllegalStateException("Value too long for column NAME");
+                }
+            }
+            return save(invocation);
+        }).when(itemRepository).saveAll(anyCollection());
+
+        ItemImportResult result = importer(100, 100).importItems(stream("{\"name\":\"A\",\"price\":1}\n"
+                + "{\"name\":\"" + tooLong + "\",\"price\":1}\n"
+                + "{\"name\":\"C\",\"price\":1}\nnot json\n"), ItemImporter.Format.NDJSON);
+
+        assertEquals(4, result.getRows());
+        assertEquals(2, result.getInserted());
+        assertEquals(2, result.getFailed());
+        assertEquals(2, result.getFailures().get(1).getLine());
+        assertEquals("Not written: Value too long for column NAME", result.getFailures().get(1).getReason());
+        // written one at a time once the batch failed
+        assertEquals(2, saved.size());
+        assertEquals("A", saved.get(0).get(0).getName());
+        assertEquals("C", saved.get(1).get(0).getName());
+    }
+
+    @Test
+    public void aRowThatCannotBeWrittenAloneFails() throws IOException {
+
+        when(itemRepository.saveAll(anyCollection())).thenThrow(new IllegalStateException("constraint violated"));
+
+        ItemImportResult result = importItems("{\"name\":\"A\",\"price\":1}\n", ItemImporter.Format.NDJSON);
+
+        assertEquals(1, result.getRows());
+        assertEquals(0, result.getInserted());
+        assertEquals(1, result.getFailed());
+        verify(itemRepository, times(1)).saveAll(anyCollection());
+    }
+
+    @Test
+    public void onlyTheFirstFailuresAreListed() throws IOException {
+
+        ItemImportResult result = importer(10, 2).importItems(stream("name,price\na,x\nb,x\nc,x\n"), ItemImporter.Format.CSV);
+
+        assertEquals(3, result.getFailed());
+        assertEquals(2, result.getFailures().size());
+    }
+
+    @Test
+    public void newItemsArePublishedOncePerBatch() throws IOException {
+
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        new ItemImporter(new ItemCatalog(itemRepository, eventPublisher, 100), itemRepository, new ObjectMapper(),
+                mock(PlatformTransactionManager.class), 2, 100)
+                .importItems(stream("name,price\na,1\nb,1\nc,1\n"), ItemImporter.Format.CSV);
+
+        ArgumentCaptor<ItemsChangedEvent> events = ArgumentCaptor.forClass(ItemsChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(Arrays.asList(100L, 101L), new ArrayList<>(events.getAllValues().get(0).getIds()));
+    }
+
+    private List<Item> save(InvocationOnMock invocation) {
+        List<Item> items = new ArrayList<>(invocation.<Collection<Item>>getArgument(0));
+        saved.add(items);
+        long id = 100;
+        for (Item item : items) {
+            if (item.getId() == null) {
+                item.setId(id++);
+            }
+        }
+        return items;
+    }
+
+    private ItemImporter importer(int batchSize, int maxErrors) {
+        return new ItemImporter(new ItemCatalog(itemRepository, event -> { }, 100), itemRepository,
+                new ObjectMapper(), mock(PlatformTransactionManager.class), batchSize, maxErrors);
+    }
+
+    private ItemImportResult importItems(String input, ItemImporter.Format format) throws IOException {
+        return itemImporter.importItems(stream(input), format);
+    }
+
+    private static ByteArrayInputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Item item(Long id, String name, String price) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setPrice(new BigDecimal(price));
+        item.setDescription("A widget");
+        return item;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ItemSearchIndexTest {
+
+    private ItemRepository itemRepository = mock(ItemRepository.class);
+
+    private ItemSearchIndex itemSearchIndex;
+
+    @Before
+    public void before() {
+
+        itemSearchIndex = new ItemSearchIndex(itemRepository, mock(EntityManager.class),
+                mock(PlatformTransactionManager.class));
+        itemSearchIndex.index(getItem(1L, "Round Widget", "A widget that is round"));
+        itemSearchIndex.index(getItem(2L, "Square Widget", "A widget that is square"));
+        itemSearchIndex.index(getItem(3L, "Round Table", "A table to put widgets on"));
+    }
+
+    @Test
+    public void searchRequiresEveryTerm() {
+
+        assertEquals(Collections.singletonList(1L), itemSearchIndex.search("widget round", 10));
+    }
+
+    @Test
+    public void nameMatchesRankBeforeDescriptionMatches() {
+
+        List<Long> ids = itemSearchIndex.search("widget", 10);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids);
+        assertEquals(Arrays.asList(1L, 3L), itemSearchIndex.search("round", 10));
+    }
+
+    @Test
+    public void lastTermMatchesAsPrefix() {
+
+        assertEquals(Arrays.asList(1L, 3L), itemSearchIndex.search("rou", 10));
+        assertEquals(Collections.singletonList(2L), itemSearchIndex.search("widget squ", 10));
+        assertTrue(itemSearchIndex.search("squ widget", 10).isEmpty());
+    }
+
+    @Test
+    public void limitKeepsTheBestResults() {
+
+        assertEquals(1, itemSearchIndex.search("widget", 1).size());
+    }
+
+    @Test
+    public void reindexingAnItemReplacesItsTerms() {
+
+        itemSearchIndex.index(getItem(2L, "Square Box", "A box that is square"));
+
+        assertTrue(itemSearchIndex.search("square widget", 10).isEmpty());
+        assertEquals(Collections.singletonList(2L), itemSearchIndex.search("box", 10));
+    }
+
+    @Test
+    public void removedItemsAreNoLongerFound() {
+
+        itemSearchIndex.remove(3L);
+
+        assertEquals(Collections.singletonList(1L), itemSearchIndex.search("round", 10));
+        assertEquals(2, itemSearchIndex.size());
+    }
+
+    @Test
+    public void changeEventsReloadTheItems() {
+
+        when(itemRepository.findAllById(Arrays.asList(1L, 3L)))
+                .thenReturn(Collections.singletonList(getItem(1L, "Oval Widget", "A widget that is oval")));
+
+        itemSearchIndex.onItemsChanged(new ItemsChangedEvent(Arrays.asList(1L, 3L)));
+
+        assertEquals(Collections.singletonList(1L), itemSearchIndex.search("oval", 10));
+        assertTrue(itemSearchIndex.search("table", 10).isEmpty());
+    }
+
+    @Test
+    public void suggestCompletesThePrefix() {
+
+        assertEquals(Arrays.asList("widget", "widgets"), itemSearchIndex.suggest("wid", 10));
+    }
+
+    @Test
+    public void changesMadeWhileRebuildingAreKept() {
+
+        Item round = getItem(1L, "Round Widget", "A widget that is round");
+        Item square = getItem(2L, "Square Widget", "A widget that is square");
+        // the catalog is read before the changes below commit and still has the square widget
+        when(itemRepository.streamAll()).thenReturn(Stream.of(round, square).peek(item -> {
+            if (item == round) {
+                itemSearchIndex.index(getItem(4L, "Oval Widget", "A widget that is oval"));
+                itemSearchIndex.remove(2L);
+            }
+        }));
+
+        itemSearchIndex.rebuild();
+
+        assertEquals(Collections.singletonList(4L), itemSearchIndex.search("oval", 10));
+        assertTrue(itemSearchIndex.search("square", 10).isEmpty());
+        assertEquals(Collections.singletonList(1L), itemSearchIndex.search("round", 10));
+        assertEquals(2, itemSearchIndex.size());
+
+        // changes made before a rebuild are not replayed over it
+        itemSearchIndex.index(getItem(5L, "Flat Widget", "A widget that is flat"));
+        when(itemRepository.streamAll()).thenReturn(Stream.of(round));
+        itemSearchIndex.rebuild();
+        assertEquals(Collections.singletonList(1L), itemSearchIndex.search("widget", 10));
+        assertEquals(1, itemSearchIndex.size());
+    }
+
+    private Item getItem(Long id, String name, String description) {
+
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setDescription(description);
+        item.setPrice(BigDecimal.valueOf(2.99));
+        return item;
+    }
+}
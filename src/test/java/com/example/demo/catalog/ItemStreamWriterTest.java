@@ -0,0 +1,96 @@
+package com.example.demo.catalog;
+
+import com.example.demo.controllers.ItemController;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.Session;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Streams a catalog large enough for the generator to flush several times, looking at the persistence context each
+ * time it does.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:item-stream")
+public class ItemStreamWriterTest {
+
+    private static final int ITEMS = 500;
+
+    @Autowired
+    private ItemController itemController;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void catalogIsStreamedAsAJsonArray() throws Exception {
+
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            Item item = new Item();
+            item.setName("Streamed Widget " + i);
+            item.setDescription("A widget to stream");
+            item.setPrice(BigDecimal.valueOf(1.25));
+            items.add(item);
+        }
+        itemRepository.saveAll(items);
+        long total = itemRepository.count();
+
+        ResponseEntity<StreamingResponseBody> response = itemController.streamItems();
+        assertEquals(MediaType.APPLICATION_JSON_UTF8, response.getHeaders().getContentType());
+
+        List<Integer> managed = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] bytes, int offset, int length) {
+                managed.add(entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+                super.write(bytes, offset, length);
+            }
+        };
+        response.getBody().writeTo(out);
+
+        JsonNode json = objectMapper.readTree(out.toByteArray());
+        assertTrue(json.isArray());
+        assertEquals(total, json.size());
+        long previous = 0;
+        for (JsonNode item : json) {
+            assertTrue(item.get("id").asLong() > previous);
+            previous = item.get("id").asLong();
+        }
+        assertEquals("Streamed Widget 499", json.get(json.size() - 1).get("name").asText());
+        assertEquals(1.25, json.get(json.size() - 1).get("price").asDouble(), 0);
+
+        assertTrue("Expected the generator to flush while streaming, it wrote " + managed.size() + " times",
+                managed.size() > 1);
+        assertTrue("Expected every item to be detached once written, found " + managed,
+                managed.stream().allMatch(count -> count <= 1));
+        assertEquals(0, dataSource.getHikariPoolMXBean().getActiveConnections());
+    }
+}
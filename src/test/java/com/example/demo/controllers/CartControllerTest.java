@@ -1,22 +1,35 @@
 package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
+import com.example.demo.cart.CartStore;
+import com.example.demo.cart.CartUpdates;
+import com.example.demo.catalog.ItemCatalog;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CartOperation;
+import com.example.demo.model.requests.ModifyCartBatchRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartResponse;
+import com.example.demo.model.responses.ModifyCartBatchResponse;
+import com.example.demo.security.UserIdentityCache;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
 import java.util.*;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class CartControllerTest {
@@ -44,9 +57,12 @@ public class CartControllerTest {
     public void before() {
 
         cartController = new CartController();
-        TestUtils.injectObjects(cartController, "itemRepository", itemRepository);
-        TestUtils.injectObjects(cartController, "userRepository", userRepository);
+        TestUtils.injectObjects(cartController, "itemCatalog", new ItemCatalog(itemRepository, event -> { }, 100));
+        TestUtils.injectObjects(cartController, "identityCache", new UserIdentityCache(userRepository, 100));
         TestUtils.injectObjects(cartController, "cartRepository", cartRepository);
+        TestUtils.injectObjects(cartController, "cartUpdates",
+                new CartUpdates(mock(PlatformTransactionManager.class), 3, 0));
+        TestUtils.injectObjects(cartController, "cartStore", mock(CartStore.class));
     }
 
     @Test
@@ -56,13 +72,14 @@ public class CartControllerTest {
         User user = getUserWithEmptyCar();
 
         when(userRepository.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepository.findWithLinesById(user.getCart().getId())).thenReturn(Optional.of(user.getCart()));
         when(itemRepository.findById(ITEM_ID)).thenReturn(Optional.ofNullable(getItem()));
 
         Cart cart = user.getCart();
 
         when(cartRepository.save(cart)).thenReturn(cart);
 
-        ResponseEntity<Cart> responseEntity = cartController.addTocart(modifyCartRequest);
+        ResponseEntity<CartResponse> responseEntity = cartController.addTocart(modifyCartRequest, false);
 
         assertNotNull(responseEntity);
         assertEquals(200, responseEntity.getStatusCodeValue());
@@ -70,6 +87,28 @@ public class CartControllerTest {
 
     }
 
+    @Test
+    public void addToCartReadsTheCartAgainAfterAConflict() {
+
+        ModifyCartRequest modifyCartRequest = getModifyCartRequest();
+        User user = getUserWithEmptyCar();
+        Cart stale = getUserWithEmptyCar().getCart();
+        Cart fresh = user.getCart();
+
+        when(userRepository.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepository.findWithLinesById(fresh.getId())).thenReturn(Optional.of(stale), Optional.of(fresh));
+        when(itemRepository.findById(ITEM_ID)).thenReturn(Optional.ofNullable(getItem()));
+        when(cartRepository.save(stale)).thenThrow(new ObjectOptimisticLockingFailureException(Cart.class, 1L));
+        when(cartRepository.save(fresh)).thenReturn(fresh);
+
+        ResponseEntity<CartResponse> responseEntity = cartController.addTocart(modifyCartRequest, false);
+
+        assertEquals(200, responseEntity.getStatusCodeValue());
+        assertEquals(ITEM_QUANTITY, fresh.getItems().size());
+        assertEquals(fresh.getItems(), Objects.requireNonNull(responseEntity.getBody()).getItems());
+        verify(cartRepository, times(2)).findWithLinesById(fresh.getId());
+    }
+
     @Test
     public void addToCartWithNonExistingUserReturnNotFoundStatusTest() {
 
@@ -83,7 +122,7 @@ public class CartControllerTest {
 
         when(cartRepository.save(cart)).thenReturn(cart);
 
-        ResponseEntity<Cart> responseEntity = cartController.addTocart(modifyCartRequest);
+        ResponseEntity<CartResponse> responseEntity = cartController.addTocart(modifyCartRequest, false);
 
         assertNotNull(responseEntity);
         assertEquals(404, responseEntity.getStatusCodeValue());
@@ -96,13 +135,14 @@ public class CartControllerTest {
         User user = getUserWithEmptyCar();
 
         when(userRepository.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepository.findWithLinesById(user.getCart().getId())).thenReturn(Optional.of(user.getCart()));
         when(itemRepository.findById(ITEM_ID)).thenReturn(Optional.empty());
 
         Cart cart = user.getCart();
 
         when(cartRepository.save(cart)).thenReturn(cart);
 
-        ResponseEntity<Cart> responseEntity = cartController.addTocart(modifyCartRequest);
+        ResponseEntity<CartResponse> responseEntity = cartController.addTocart(modifyCartRequest, false);
 
         assertNotNull(responseEntity);
         assertEquals(404, responseEntity.getStatusCodeValue());
@@ -115,13 +155,14 @@ public class CartControllerTest {
         User user = getUser();
 
         when(userRepository.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepository.findWithLinesById(user.getCart().getId())).thenReturn(Optional.of(user.getCart()));
         when(itemRepository.findById(ITEM_ID)).thenReturn(Optional.of(getItem()));
 
         Cart cart = user.getCart();
 
         when(cartRepository.save(cart)).thenReturn(cart);
 
-        ResponseEntity<Cart> responseEntity = cartController.removeFromcart(modifyCartRequest);
+        ResponseEntity<CartResponse> responseEntity = cartController.removeFromcart(modifyCartRequest, false);
 
         assertNotNull(responseEntity);
         assertEquals(200, responseEntity.getStatusCodeValue());
@@ -142,7 +183,7 @@ public class CartControllerTest {
 
         when(cartRepository.save(cart)).thenReturn(cart);
 
-        ResponseEntity<Cart> responseEntity = cartController.removeFromcart(modifyCartRequest);
+        ResponseEntity<CartResponse> responseEntity = cartController.removeFromcart(modifyCartRequest, false);
 
         assertNotNull(responseEntity);
         assertEquals(404, responseEntity.getStatusCodeValue());
@@ -155,13 +196,59 @@ public class CartControllerTest {
         User user = getUserWithEmptyCar();
 
         when(userRepository.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepository.findWithLinesById(user.getCart().getId())).thenReturn(Optional.of(user.getCart()));
         when(itemRepository.findById(ITEM_ID)).thenReturn(Optional.empty());
 
         Cart cart = user.getCart();
 
         when(cartRepository.save(cart)).thenReturn(cart);
 
-        ResponseEntity<Cart> responseEntity = cartController.removeFromcart(modifyCartRequest);
+        ResponseEntity<CartResponse> responseEntity = cartController.removeFromcart(modifyCartRequest, false);
+
+        assertNotNull(responseEntity);
+        assertEquals(404, responseEntity.getStatusCodeValue());
+    }
+
+    @Test
+    public void modifyCartAppliesOperationsAndReportsFailures() {
+
+        User user = getUserWithEmptyCar();
+        when(userRepository.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepository.findWithLinesById(user.getCart().getId())).thenReturn(Optional.of(user.getCart()));
+        when(itemRepository.findAllById(any())).thenReturn(Collections.singletonList(getItem()));
+
+        ModifyCartBatchRequest request = new ModifyCartBatchRequest();
+        request.setUsername(USERNAME);
+        request.setOperations(Arrays.asList(
+                new CartOperation(ITEM_ID, 5),
+                new CartOperation(42L, 1),
+                new CartOperation(ITEM_ID, -2),
+                new CartOperation(ITEM_ID, 0)));
+
+        ResponseEntity<ModifyCartBatchResponse> responseEntity = cartController.modifyCart(request, false);
+
+        assertNotNull(responseEntity);
+        assertEquals(200, responseEntity.getStatusCodeValue());
+        ModifyCartBatchResponse body = Objects.requireNonNull(responseEntity.getBody());
+        assertEquals(3, body.getCart().getItemCount());
+        assertEquals(2, body.getFailures().size());
+        assertEquals(1, body.getFailures().get(0).getIndex());
+        assertEquals(42L, body.getFailures().get(0).getItemId());
+        assertEquals(3, body.getFailures().get(1).getIndex());
+        verify(itemRepository, times(1)).findAllById(any());
+        verify(cartRepository, times(1)).save(user.getCart());
+    }
+
+    @Test
+    public void modifyCartWithNonExistingUserReturnNotFoundStatusTest() {
+
+        when(userRepository.findByUsername(USERNAME)).thenReturn(null);
+
+        ModifyCartBatchRequest request = new ModifyCartBatchRequest();
+        request.setUsername(USERNAME);
+        request.setOperations(Collections.singletonList(new CartOperation(ITEM_ID, 1)));
+
+        ResponseEntity<ModifyCartBatchResponse> responseEntity = cartController.modifyCart(request, false);
 
         assertNotNull(responseEntity);
         assertEquals(404, responseEntity.getStatusCodeValue());
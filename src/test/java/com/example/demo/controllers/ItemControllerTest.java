@@ -1,29 +1,52 @@
 package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
+import com.example.demo.catalog.ItemCatalog;
+import com.example.demo.catalog.ItemImporter;
+import com.example.demo.catalog.ItemSearchIndex;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ItemImportResult;
+import com.example.demo.model.responses.ItemPage;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import javax.persistence.EntityManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
+import static com.example.demo.TestUtils.webRequest;
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class ItemControllerTest {
 
     private ItemController itemController;
 
+    private ItemCatalog itemCatalog;
+
     private ItemRepository itemRepository = mock(ItemRepository.class);
 
+    private ItemSearchIndex itemSearchIndex;
+
+    private ItemImporter itemImporter = mock(ItemImporter.class);
+
     private static final String ROUND_WIDGET = "Round Widget";
     private static final String ROUND_WIDGET_DESCRIPTION = "A widget that is round";
 
@@ -31,24 +54,60 @@ public class ItemControllerTest {
     public void before() {
 
         itemController = new ItemController();
-        TestUtils.injectObjects(itemController, "itemRepository", itemRepository);
+        itemCatalog = new ItemCatalog(itemRepository, event -> { }, 100);
+        TestUtils.injectObjects(itemController, "itemCatalog", itemCatalog);
+        TestUtils.injectObjects(itemController, "maxPageSize", 2);
+
+        itemSearchIndex = new ItemSearchIndex(itemRepository, mock(EntityManager.class),
+                mock(PlatformTransactionManager.class));
+        TestUtils.injectObjects(itemController, "itemSearchIndex", itemSearchIndex);
+        TestUtils.injectObjects(itemController, "itemImporter", itemImporter);
     }
 
     @Test
     public void getItemsTest() {
 
         when(itemRepository.findAll()).thenReturn(Collections.singletonList(getItem()));
-        ResponseEntity<List<Item>> responseEntity = itemController.getItems();
+        ResponseEntity<List<Item>> responseEntity = itemController.getItems(webRequest(null));
         assertNotNull(responseEntity);
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertEquals(1, Objects.requireNonNull(responseEntity.getBody()).size());
     }
 
+    @Test
+    public void getItemsNotModifiedTest() {
+
+        when(itemRepository.findAll()).thenReturn(Collections.singletonList(getItem()));
+        String etag = itemController.getItems(webRequest(null)).getHeaders().getETag();
+        assertNotNull(etag);
+
+        ResponseEntity<List<Item>> notModified = itemController.getItems(webRequest(etag));
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertNull(notModified.getBody());
+
+        itemCatalog.invalidate(1L);
+        ResponseEntity<List<Item>> changed = itemController.getItems(webRequest(etag));
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+    }
+
+    @Test
+    public void getItemByIdNotModifiedTest() {
+
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(getItem()));
+        String etag = itemController.getItemById(1L, webRequest(null)).getHeaders().getETag();
+
+        ResponseEntity<Item> notModified = itemController.getItemById(1L, webRequest("\"other\", " + etag));
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertNull(notModified.getBody());
+        assertEquals(200, itemController.getItemById(1L, webRequest("\"other\"")).getStatusCodeValue());
+    }
+
     @Test
     public void getItemByIdTest() {
 
         when(itemRepository.findById(1L)).thenReturn(Optional.of(getItem()));
-        ResponseEntity<Item> responseEntity = itemController.getItemById(1L);
+        ResponseEntity<Item> responseEntity = itemController.getItemById(1L, webRequest(null));
         assertNotNull(responseEntity);
         assertEquals(200, responseEntity.getStatusCodeValue());
         assertEquals(ROUND_WIDGET_DESCRIPTION, Objects.requireNonNull(responseEntity.getBody()).getDescription());
@@ -83,10 +142,92 @@ public class ItemControllerTest {
         assertEquals(404, responseEntity.getStatusCodeValue());
     }
 
+    @Test
+    public void getItemPageReturnsCursorToTheNextPage() {
+
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any()))
+                .thenReturn(Arrays.asList(getItem(1L), getItem(2L), getItem(3L)));
+
+        ResponseEntity<ItemPage> responseEntity = itemController.getItemPage(0L, 10);
+
+        assertNotNull(responseEntity);
+        assertEquals(200, responseEntity.getStatusCodeValue());
+        ItemPage page = Objects.requireNonNull(responseEntity.getBody());
+        assertEquals(2, page.getItems().size());
+        assertEquals(Long.valueOf(2L), page.getNext());
+    }
+
+    @Test
+    public void getLastItemPageHasNoCursor() {
+
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any()))
+                .thenReturn(Collections.singletonList(getItem(3L)));
+
+        ResponseEntity<ItemPage> responseEntity = itemController.getItemPage(2L, 2);
+
+        assertNotNull(responseEntity);
+        ItemPage page = Objects.requireNonNull(responseEntity.getBody());
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    public void getItemPageWithInvalidSizeReturnsBadRequest() {
+
+        ResponseEntity<ItemPage> responseEntity = itemController.getItemPage(0L, 0);
+
+        assertNotNull(responseEntity);
+        assertEquals(400, responseEntity.getStatusCodeValue());
+    }
+
+    @Test
+    public void searchItemsReturnsRankedItems() {
+
+        Item item = getItem();
+        itemSearchIndex.index(item);
+        when(itemRepository.findAllById(any())).thenReturn(Collections.singletonList(item));
+
+        ResponseEntity<List<Item>> responseEntity = itemController.searchItems("wid", 10);
+
+        assertNotNull(responseEntity);
+        assertEquals(200, responseEntity.getStatusCodeValue());
+        assertEquals(1, Objects.requireNonNull(responseEntity.getBody()).size());
+        assertEquals(ROUND_WIDGET, responseEntity.getBody().get(0).getName());
+    }
+
+    @Test
+    public void importItemsIsNotFoundUnlessEnabled() throws IOException {
+
+        ResponseEntity<ItemImportResult> responseEntity = itemController.importItems(ItemImporter.Format.TEXT_CSV,
+                new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(404, responseEntity.getStatusCodeValue());
+        verifyZeroInteractions(itemImporter);
+    }
+
+    @Test
+    public void importItemsPicksTheFormatFromTheContentType() throws IOException {
+
+        TestUtils.injectObjects(itemController, "importEnabled", true);
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        ItemImportResult result = new ItemImportResult(10);
+        when(itemImporter.importItems(body, ItemImporter.Format.NDJSON)).thenReturn(result);
+
+        ResponseEntity<ItemImportResult> responseEntity = itemController.importItems(
+                MediaType.valueOf("application/x-ndjson;charset=UTF-8"), body);
+
+        assertEquals(200, responseEntity.getStatusCodeValue());
+        assertSame(result, responseEntity.getBody());
+    }
+
     private Item getItem() {
+        return getItem(1L);
+    }
+
+    private Item getItem(Long id) {
 
         Item item = new Item();
-        item.setId(1L);
+        item.setId(id);
         item.setDescription(ROUND_WIDGET_DESCRIPTION);
         item.setName(ROUND_WIDGET);
         item.setPrice(BigDecimal.valueOf(2.99));
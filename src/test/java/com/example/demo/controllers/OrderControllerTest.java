@@ -1,25 +1,47 @@
 package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
+import com.example.demo.cart.CartStore;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderHistoryPage;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.model.responses.OrderSubmissionStatus;
+import com.example.demo.model.responses.OrderSummary;
+import com.example.demo.order.OrderSubmissionQueue;
+import com.example.demo.order.OrderVersions;
+import com.example.demo.security.UserIdentityCache;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
+import static com.example.demo.TestUtils.webRequest;
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class OrderControllerTest {
@@ -30,6 +52,14 @@ public class OrderControllerTest {
 
     private OrderRepository orderRepository = mock(OrderRepository.class);
 
+    private CartRepository cartRepository = mock(CartRepository.class);
+
+    private OrderSubmissionQueue orderSubmissions = mock(OrderSubmissionQueue.class);
+
+    private CartStore cartStore = mock(CartStore.class);
+
+    private OrderVersions orderVersions = new OrderVersions(100);
+
     private static final String USERNAME = "herve";
     private final static String HASHED_PASSWORD = "hashedHervePaswword";
 
@@ -41,21 +71,47 @@ public class OrderControllerTest {
 
         orderController = new OrderController();
         TestUtils.injectObjects(orderController, "orderRepository", orderRepository);
-        TestUtils.injectObjects(orderController, "userRepository", userRepository);
+        TestUtils.injectObjects(orderController, "identityCache", new UserIdentityCache(userRepository, 100));
+        TestUtils.injectObjects(orderController, "cartRepository", cartRepository);
+        TestUtils.injectObjects(orderController, "orderSubmissions", orderSubmissions);
+        TestUtils.injectObjects(orderController, "cartStore", cartStore);
+        TestUtils.injectObjects(orderController, "orderVersions", orderVersions);
+        TestUtils.injectObjects(orderController, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        TestUtils.injectObjects(orderController, "maxPageSize", 100);
+        when(cartStore.flush(anyLong())).thenReturn(true);
     }
 
     @Test
     public void submitTest() {
 
-        when(userRepository.findByUsername(USERNAME)).thenReturn(getUser());
+        User user = getUser();
+        when(userRepository.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepository.findWithLinesById(user.getCart().getId())).thenReturn(Optional.of(user.getCart()));
 
         when(orderRepository.save(any())).thenReturn(getUserOrder());
 
-        ResponseEntity<UserOrder> responseEntity = orderController.submit(USERNAME);
+        ResponseEntity<OrderResponse> responseEntity = orderController.submit(USERNAME, false);
 
         assertNotNull(responseEntity);
         assertEquals(200, responseEntity.getStatusCodeValue());
         assertEquals(USERNAME, Objects.requireNonNull(responseEntity.getBody()).getUser().getUsername());
+        verify(cartStore).flush(user.getCart().getId());
+    }
+
+    @Test
+    public void submitOfACartThatCouldNotBeWrittenIsRefusedTest() {
+
+        User user = getUser();
+        when(userRepository.findByUsername(USERNAME)).thenReturn(user);
+        when(cartStore.flush(user.getCart().getId())).thenReturn(false);
+
+        ResponseEntity<OrderResponse> responseEntity = orderController.submit(USERNAME, false);
+
+        assertEquals(503, responseEntity.getStatusCodeValue());
+        assertEquals("1", responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        verify(cartRepository, never()).findWithLinesById(anyLong());
+        verify(orderRepository, never()).save(any());
     }
 
     @Test
@@ -65,12 +121,64 @@ public class OrderControllerTest {
 
         when(orderRepository.save(any())).thenReturn(getUserOrder());
 
-        ResponseEntity<UserOrder> responseEntity = orderController.submit(USERNAME);
+        ResponseEntity<OrderResponse> responseEntity = orderController.submit(USERNAME, false);
 
         assertNotNull(responseEntity);
         assertEquals(404, responseEntity.getStatusCodeValue());
     }
 
+    @Test
+    public void asyncSubmitIsAcceptedWithAReferenceTest() {
+
+        User user = getUser();
+        when(userRepository.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepository.findWithLinesById(user.getCart().getId())).thenReturn(Optional.of(user.getCart()));
+        when(orderSubmissions.isEnabled()).thenReturn(true);
+        when(orderSubmissions.offer(any())).thenReturn(true);
+
+        ResponseEntity<OrderResponse> responseEntity = orderController.submit(USERNAME, false);
+
+        assertEquals(202, responseEntity.getStatusCodeValue());
+        String reference = Objects.requireNonNull(responseEntity.getBody()).getReference();
+        assertNotNull(reference);
+        assertEquals("/api/order/status/" + USERNAME + "/" + reference,
+                Objects.requireNonNull(responseEntity.getHeaders().getLocation()).toString());
+        verify(orderRepository, never()).save(any());
+    }
+
+    @Test
+    public void asyncSubmitWhenQueueIsFullReturnServiceUnavailableTest() {
+
+        User user = getUser();
+        when(userRepository.findByUsername(USERNAME)).thenReturn(user);
+        when(cartRepository.findWithLinesById(user.getCart().getId())).thenReturn(Optional.of(user.getCart()));
+        when(orderSubmissions.isEnabled()).thenReturn(true);
+        when(orderSubmissions.offer(any())).thenReturn(false);
+
+        ResponseEntity<OrderResponse> responseEntity = orderController.submit(USERNAME, false);
+
+        assertEquals(503, responseEntity.getStatusCodeValue());
+        assertEquals("1", responseEntity.getHeaders().getFirst("Retry-After"));
+    }
+
+    @Test
+    public void submissionStatusTest() {
+
+        when(userRepository.findByUsername(USERNAME)).thenReturn(getUser());
+        when(orderSubmissions.stateOf("queued", 1L)).thenReturn(OrderSubmissionQueue.State.QUEUED);
+        when(orderRepository.findIdByReferenceAndUserId("written", 1L)).thenReturn(Optional.of(7L));
+        when(orderRepository.findIdByReferenceAndUserId("unknown", 1L)).thenReturn(Optional.empty());
+
+        OrderSubmissionStatus queued = orderController.getSubmissionStatus(USERNAME, "queued").getBody();
+        OrderSubmissionStatus written = orderController.getSubmissionStatus(USERNAME, "written").getBody();
+
+        assertEquals(OrderSubmissionQueue.State.QUEUED, Objects.requireNonNull(queued).getState());
+        assertNull(queued.getOrderId());
+        assertEquals(OrderSubmissionQueue.State.SUBMITTED, Objects.requireNonNull(written).getState());
+        assertEquals(Long.valueOf(7L), written.getOrderId());
+        assertEquals(404, orderController.getSubmissionStatus(USERNAME, "unknown").getStatusCodeValue());
+    }
+
     @Test
     public void ordersForUserTest() {
 
@@ -79,23 +187,91 @@ public class OrderControllerTest {
 
         UserOrder order = getUserOrder();
         order.setUser(user);
-        when(orderRepository.findByUser(any())).thenReturn(Collections.singletonList(order));
+        when(orderRepository.findDistinctByUserId(1L)).thenReturn(Collections.singletonList(order));
 
-        ResponseEntity<List<UserOrder>> responseEntity = orderController.getOrdersForUser(USERNAME);
+        ResponseEntity<List<OrderResponse>> responseEntity =
+                orderController.getOrdersForUser(USERNAME, false, webRequest(null));
 
         assertNotNull(responseEntity);
         assertEquals(200, responseEntity.getStatusCodeValue());
         assertEquals(USERNAME, Objects.requireNonNull(responseEntity.getBody()).get(0).getUser().getUsername());
     }
 
+    @Test
+    public void ordersForUserNotModifiedUntilAnOrderIsWrittenTest() {
+
+        when(userRepository.findByUsername(USERNAME)).thenReturn(getUser());
+        when(orderRepository.findDistinctByUserId(1L)).thenReturn(Collections.singletonList(getUserOrder()));
+
+        String etag = orderController.getOrdersForUser(USERNAME, false, webRequest(null)).getHeaders().getETag();
+        assertNotNull(etag);
+
+        ResponseEntity<List<OrderResponse>> notModified =
+                orderController.getOrdersForUser(USERNAME, false, webRequest(etag));
+        assertEquals(304, notModified.getStatusCodeValue());
+        assertNull(notModified.getBody());
+        verify(orderRepository, times(1)).findDistinctByUserId(1L);
+
+        orderVersions.changed(2L);
+        assertEquals(304, orderController.getOrdersForUser(USERNAME, false, webRequest(etag)).getStatusCodeValue());
+
+        orderVersions.changed(1L);
+        ResponseEntity<List<OrderResponse>> changed =
+                orderController.getOrdersForUser(USERNAME, false, webRequest(etag));
+        assertEquals(200, changed.getStatusCodeValue());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+    }
+
     @Test
     public void ordersForUserWhenUserNotExistsReturnNotFoundTest() {
 
         when(userRepository.findByUsername(USERNAME)).thenReturn(null);
 
-        when(orderRepository.findByUser(any())).thenReturn(Collections.singletonList(getUserOrder()));
+        when(orderRepository.findDistinctByUserId(anyLong())).thenReturn(Collections.singletonList(getUserOrder()));
+
+        ResponseEntity<List<OrderResponse>> responseEntity =
+                orderController.getOrdersForUser(USERNAME, false, webRequest(null));
+
+        assertNotNull(responseEntity);
+        assertEquals(404, responseEntity.getStatusCodeValue());
+    }
+
+    @Test
+    public void orderHistoryPageTest() {
+
+        when(userRepository.findByUsername(USERNAME)).thenReturn(getUser());
+        OrderSummary summary = new OrderSummary(1L, 299L, 1, Instant.now());
+        when(orderRepository.findSummariesByUserId(eq(1L), any()))
+                .thenReturn(new SliceImpl<>(Collections.singletonList(summary), PageRequest.of(0, 20), true));
+
+        ResponseEntity<OrderHistoryPage> responseEntity = orderController.getOrderHistoryPage(USERNAME, 0, 500);
+
+        assertNotNull(responseEntity);
+        assertEquals(200, responseEntity.getStatusCodeValue());
+        OrderHistoryPage page = Objects.requireNonNull(responseEntity.getBody());
+        assertEquals(1, page.getOrders().size());
+        assertEquals(100, page.getSize());
+        assertTrue(page.isHasNext());
+    }
+
+    @Test
+    public void orderHistoryPageWhenUserNotExistsReturnNotFoundTest() {
+
+        when(userRepository.findByUsername(USERNAME)).thenReturn(null);
+
+        ResponseEntity<OrderHistoryPage> responseEntity = orderController.getOrderHistoryPage(USERNAME, 0, 20);
+
+        assertNotNull(responseEntity);
+        assertEquals(404, responseEntity.getStatusCodeValue());
+    }
+
+    @Test
+    public void orderDetailOfAnotherUserReturnNotFoundTest() {
+
+        when(userRepository.findByUsername(USERNAME)).thenReturn(getUser());
+        when(orderRepository.findByIdAndUserId(anyLong(), anyLong())).thenReturn(Optional.empty());
 
-        ResponseEntity<List<UserOrder>> responseEntity = orderController.getOrdersForUser(USERNAME);
+        ResponseEntity<OrderResponse> responseEntity = orderController.getOrder(USERNAME, 1L, false);
 
         assertNotNull(responseEntity);
         assertEquals(404, responseEntity.getStatusCodeValue());
@@ -3,14 +3,16 @@ package com.example.demo.controllers;
 
 import com.example.demo.TestUtils;
 import com.example.demo.model.persistence.User;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.responses.UserResponse;
+import com.example.demo.security.UserIdentityCache;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Objects;
 import java.util.Optional;
@@ -19,6 +21,7 @@ import static org.junit.Assert.*;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class UserControllerTest {
@@ -27,9 +30,7 @@ public class UserControllerTest {
 
     private UserRepository userRepository = mock(UserRepository.class);
 
-    private CartRepository cartRepository = mock(CartRepository.class);
-
-    private BCryptPasswordEncoder bCryptPasswordEncoder = mock(BCryptPasswordEncoder.class);
+    private PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
 
     private static final String USERNAME = "herve";
     private final static String PASSWORD = "hervePassword";
@@ -41,16 +42,16 @@ public class UserControllerTest {
     public void before() {
 
         userController = new UserController();
-        TestUtils.injectObjects(userController, "bCryptPasswordEncoder", bCryptPasswordEncoder);
+        TestUtils.injectObjects(userController, "passwordEncoder", passwordEncoder);
         TestUtils.injectObjects(userController, "userRepository", userRepository);
-        TestUtils.injectObjects(userController, "cartRepository", cartRepository);
+        TestUtils.injectObjects(userController, "identityCache", new UserIdentityCache(userRepository, 100));
     }
 
     @Test
     public void findByIdTest() {
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(getUser()));
-        ResponseEntity<User> responseEntity = userController.findById(1L);
+        when(userRepository.findResponseById(1L)).thenReturn(Optional.of(UserResponse.of(getUser())));
+        ResponseEntity<UserResponse> responseEntity = userController.findById(1L);
         assertNotNull(responseEntity);
         assertEquals(200, responseEntity.getStatusCodeValue());
     }
@@ -58,8 +59,8 @@ public class UserControllerTest {
     @Test
     public void findByUsername() {
 
-        when(userRepository.findByUsername(USERNAME)).thenReturn(getUser());
-        ResponseEntity<User> responseEntity = userController.findByUserName(USERNAME);
+        when(userRepository.findResponseByUsername(USERNAME)).thenReturn(Optional.of(UserResponse.of(getUser())));
+        ResponseEntity<UserResponse> responseEntity = userController.findByUserName(USERNAME);
         assertNotNull(responseEntity);
         assertEquals(200, responseEntity.getStatusCodeValue());
         assertEquals(USERNAME, Objects.requireNonNull(responseEntity.getBody()).getUsername());
@@ -70,14 +71,26 @@ public class UserControllerTest {
 
         CreateUserRequest createUserRequest = getCreatedUser();
         when(userRepository.save(any())).thenReturn(getUser());
-        when(bCryptPasswordEncoder.encode(PASSWORD)).thenReturn(HASHED_PASSWORD);
+        when(passwordEncoder.encode(PASSWORD)).thenReturn(HASHED_PASSWORD);
 
-        ResponseEntity<User> responseEntity = userController.createUser(createUserRequest);
+        ResponseEntity<UserResponse> responseEntity = userController.createUser(createUserRequest);
 
         System.out.println(responseEntity.getBody());
         assertNotNull(responseEntity);
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
-        assertEquals(HASHED_PASSWORD, Objects.requireNonNull(responseEntity.getBody()).getPassword());
+        assertEquals(USERNAME, Objects.requireNonNull(responseEntity.getBody()).getUsername());
+
+        ArgumentCaptor<User> saved = ArgumentCaptor.forClass(User.class);
+        verify(userRepository).save(saved.capture());
+        assertEquals(HASHED_PASSWORD, saved.getValue().getPassword());
+    }
+
+    @Test
+    public void findByUsernameNotFoundTest() {
+
+        when(userRepository.findResponseByUsername(USERNAME)).thenReturn(Optional.empty());
+        ResponseEntity<UserResponse> responseEntity = userController.findByUserName(USERNAME);
+        assertEquals(404, responseEntity.getStatusCodeValue());
     }
 
     @Test
@@ -91,9 +104,9 @@ public class UserControllerTest {
         user.setPassword(HASHED_PASSWORD_LESS_7_CHAR);
 
         when(userRepository.save(any())).thenReturn(user);
-        when(bCryptPasswordEncoder.encode(PASSWORD_LESS_7_CHAR)).thenReturn(HASHED_PASSWORD_LESS_7_CHAR);
+        when(passwordEncoder.encode(PASSWORD_LESS_7_CHAR)).thenReturn(HASHED_PASSWORD_LESS_7_CHAR);
 
-        ResponseEntity<User> responseEntity = userController.createUser(createUserRequest);
+        ResponseEntity<UserResponse> responseEntity = userController.createUser(createUserRequest);
 
         System.out.println(responseEntity.getBody());
         assertNotNull(responseEntity);
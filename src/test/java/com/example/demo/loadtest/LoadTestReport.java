@@ -0,0 +1,145 @@
+package com.example.demo.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and errors of one load level, per endpoint. Latencies are kept in HDR histograms, so percentiles are
+ * exact to three significant digits whatever the number of requests, and recording does not allocate.
+ */
+class LoadTestReport {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final int threads;
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private volatile long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    LoadTestReport(int threads) {
+        this.threads = threads;
+    }
+
+    void record(String endpoint, long latencyNanos, boolean error) {
+        endpoints.computeIfAbsent(endpoint, name -> new EndpointStats()).record(latencyNanos, error);
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+    }
+
+    void stop() {
+        endNanos = System.nanoTime();
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    long getRequests() {
+        return endpoints.values().stream().mapToLong(stats -> stats.latencies.getTotalCount()).sum();
+    }
+
+    long getErrors() {
+        return endpoints.values().stream().mapToLong(stats -> stats.errors.sum()).sum();
+    }
+
+    double getErrorRate() {
+        long requests = getRequests();
+        return requests == 0 ? 0 : (double) getErrors() / requests;
+    }
+
+    double getThroughput() {
+        return getRequests() / seconds();
+    }
+
+    void print(PrintStream out) {
+        out.printf("%n%d thread(s), %.1f s%n", threads, seconds());
+        out.printf("%-36s %9s %9s %8s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, EndpointStats> entry : sorted().entrySet()) {
+            print(out, entry.getKey(), entry.getValue().latencies, entry.getValue().errors.sum());
+        }
+        print(out, "total", total(), getErrors());
+    }
+
+    /**
+     * Summarizes the level the way it is written to the JSON report, endpoint by endpoint and in total.
+     */
+    Map<String, Object> toMap() {
+        Map<String, Object> level = new LinkedHashMap<>();
+        level.put("threads", threads);
+        level.put("seconds", seconds());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Map.Entry<String, EndpointStats> entry : sorted().entrySet()) {
+            rows.add(toMap(entry.getKey(), entry.getValue().latencies, entry.getValue().errors.sum()));
+        }
+        level.put("endpoints", rows);
+        level.put("total", toMap("total", total(), getErrors()));
+        return level;
+    }
+
+    private void print(PrintStream out, String endpoint, Histogram latencies, long errors) {
+        long requests = latencies.getTotalCount();
+        out.printf("%-36s %9d %9.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f%n", endpoint, requests, requests / seconds(),
+                requests == 0 ? 0 : 100.0 * errors / requests, millis(latencies.getValueAtPercentile(50)),
+                millis(latencies.getValueAtPercentile(90)), millis(latencies.getValueAtPercentile(99)),
+                millis(latencies.getMaxValue()));
+    }
+
+    private Map<String, Object> toMap(String endpoint, Histogram latencies, long errors) {
+        long requests = latencies.getTotalCount();
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("endpoint", endpoint);
+        row.put("requests", requests);
+        row.put("errors", errors);
+        row.put("errorRate", requests == 0 ? 0 : (double) errors / requests);
+        row.put("throughput", requests / seconds());
+        row.put("p50Millis", millis(latencies.getValueAtPercentile(50)));
+        row.put("p90Millis", millis(latencies.getValueAtPercentile(90)));
+        row.put("p99Millis", millis(latencies.getValueAtPercentile(99)));
+        row.put("maxMillis", millis(latencies.getMaxValue()));
+        return row;
+    }
+
+    private Map<String, EndpointStats> sorted() {
+        return new TreeMap<>(endpoints);
+    }
+
+    private Histogram total() {
+        Histogram total = new Histogram(MAX_LATENCY_NANOS, 3);
+        endpoints.values().forEach(stats -> total.add(stats.latencies));
+        return total;
+    }
+
+    private double seconds() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return Math.max(1, end - startNanos) / 1e9;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static final class EndpointStats {
+        private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+        private final LongAdder errors = new LongAdder();
+
+        void record(long latencyNanos, boolean error) {
+            latencies.recordValue(Math.min(latencyNanos, MAX_LATENCY_NANOS));
+            if (error) {
+                errors.increment();
+            }
+        }
+    }
+}
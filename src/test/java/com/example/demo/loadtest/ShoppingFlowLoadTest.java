@@ -0,0 +1,262 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.security.SecurityConstants;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives the whole shopping flow against the application on a random port, with one virtual user per thread. A
+ * virtual user signs up, logs in and then shops for a few rounds (browse the catalog, look at an item, add it to
+ * the cart, sometimes take one back, sometimes submit the order and look at the history) before starting over as a
+ * new user, pausing for the think time between requests.
+ * <p>
+ * Each thread count is run in turn against the same application, after a warmup whose requests are not counted.
+ * Throughput, latency percentiles and error rates are printed per endpoint and written to
+ * {@code target/loadtest/shopping-flow.json}. Runs with {@code mvn -Ploadtest test}, the settings are the
+ * {@code loadtest.*} properties of the pom and can be overridden on the command line.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ShoppingFlowLoadTest {
+
+    private static final String PASSWORD = "loadtest-password";
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    private final List<Integer> threadCounts = Arrays.stream(System.getProperty("loadtest.threads", "1,4,16")
+            .split(",")).map(String::trim).map(Integer::valueOf).collect(Collectors.toList());
+    private final long warmupSeconds = Long.getLong("loadtest.warmup-seconds", 5);
+    private final long durationSeconds = Long.getLong("loadtest.duration-seconds", 30);
+    private final long thinkMillis = Long.getLong("loadtest.think-millis", 50);
+    private final int roundsPerUser = Integer.getInteger("loadtest.rounds-per-user", 20);
+    private final double maxErrorRate = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile LoadTestReport report;
+    private volatile boolean running;
+
+    @Test
+    public void shoppingFlowScalesWithThreads() throws Exception {
+
+        List<LoadTestReport> reports = new ArrayList<>();
+        for (int threads : threadCounts) {
+            reports.add(run(threads));
+        }
+        write(reports);
+
+        for (LoadTestReport level : reports) {
+            assertTrue("No request completed with " + level.getThreads() + " thread(s)", level.getRequests() > 0);
+            assertTrue(String.format("Error rate %.2f%% with %d thread(s)", 100 * level.getErrorRate(),
+                    level.getThreads()), level.getErrorRate() <= maxErrorRate);
+        }
+    }
+
+    private LoadTestReport run(int threads) throws Exception {
+
+        report = new LoadTestReport(threads);
+        running = true;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> users = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            users.add(executor.submit(this::virtualUser));
+        }
+
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        LoadTestReport measured = new LoadTestReport(threads);
+        report = measured;
+        measured.start();
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        measured.stop();
+        running = false;
+
+        for (Future<?> user : users) {
+            user.get();
+        }
+        executor.shutdown();
+        measured.print(System.out);
+        return measured;
+    }
+
+    private Void virtualUser() throws InterruptedException {
+        while (running) {
+            think();
+            String username = "loadtest-" + USERS.incrementAndGet();
+            if (!signup(username)) {
+                continue;
+            }
+            think();
+            HttpHeaders headers = login(username);
+            if (headers == null) {
+                continue;
+            }
+            for (int round = 0; round < roundsPerUser && running; round++) {
+                shop(username, headers);
+            }
+        }
+        return null;
+    }
+
+    private void shop(String username, HttpHeaders headers) throws InterruptedException {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        think();
+        ResponseEntity<String> items = exchange("GET /api/item", HttpMethod.GET, "/api/item", headers, null);
+        JsonNode catalog = read(items);
+        if (catalog == null || catalog.size() == 0) {
+            return;
+        }
+        long itemId = catalog.get(random.nextInt(catalog.size())).get("id").asLong();
+
+        think();
+        exchange("GET /api/item/{id}", HttpMethod.GET, "/api/item/" + itemId, headers, null);
+
+        think();
+        exchange("POST /api/cart/addToCart", HttpMethod.POST, "/api/cart/addToCart", headers,
+                modifyCart(username, itemId, 1 + random.nextInt(3)));
+
+        if (random.nextInt(10) < 3) {
+            think();
+            exchange("POST /api/cart/removeFromCart", HttpMethod.POST, "/api/cart/removeFromCart", headers,
+                    modifyCart(username, itemId, 1));
+        }
+
+        if (random.nextInt(10) < 2) {
+            think();
+            exchange("POST /api/order/submit/{username}", HttpMethod.POST, "/api/order/submit/" + username, headers,
+                    null);
+            think();
+            exchange("GET /api/order/history/{username}", HttpMethod.GET, "/api/order/history/" + username, headers,
+                    null);
+        }
+    }
+
+    private boolean signup(String username) {
+        CreateUserRequest request = new CreateUserRequest();
+        request.setUsername(username);
+        request.setPassword(PASSWORD);
+        request.setPasswordConfirm(PASSWORD);
+        ResponseEntity<String> response = exchange("POST " + SecurityConstants.SIGN_UP_URL, HttpMethod.POST,
+                SecurityConstants.SIGN_UP_URL, new HttpHeaders(), request);
+        return response != null && response.getStatusCode().is2xxSuccessful();
+    }
+
+    private HttpHeaders login(String username) {
+        Map<String, String> credentials = new LinkedHashMap<>();
+        credentials.put("username", username);
+        credentials.put("password", PASSWORD);
+        ResponseEntity<String> response = exchange("POST " + SecurityConstants.LOGIN_URL, HttpMethod.POST,
+                SecurityConstants.LOGIN_URL, new HttpHeaders(), credentials);
+        if (response == null || !response.getStatusCode().is2xxSuccessful()) {
+            return null;
+        }
+        String token = response.getHeaders().getFirst(SecurityConstants.HEADER_STRING);
+        if (token == null) {
+            return null;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(SecurityConstants.HEADER_STRING, token);
+        return headers;
+    }
+
+    /**
+     * Sends one request and records it against {@code endpoint}. A request that fails without a response counts as
+     * an error and returns {@code null}.
+     */
+    private ResponseEntity<String> exchange(String endpoint, HttpMethod method, String url, HttpHeaders headers,
+                                            Object body) {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.putAll(headers);
+        requestHeaders.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        if (body != null) {
+            requestHeaders.setContentType(MediaType.APPLICATION_JSON);
+        }
+        LoadTestReport current = report;
+        long start = System.nanoTime();
+        ResponseEntity<String> response;
+        try {
+            response = restTemplate.exchange(url, method, new HttpEntity<>(body, requestHeaders), String.class);
+        } catch (RuntimeException e) {
+            current.record(endpoint, System.nanoTime() - start, true);
+            return null;
+        }
+        current.record(endpoint, System.nanoTime() - start, !response.getStatusCode().is2xxSuccessful());
+        return response;
+    }
+
+    private JsonNode read(ResponseEntity<String> response) {
+        if (response == null || !response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(response.getBody());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void think() throws InterruptedException {
+        if (thinkMillis > 0) {
+            // uniform around the configured think time, so that the virtual users do not move in lockstep
+            TimeUnit.MILLISECONDS.sleep(thinkMillis / 2 + ThreadLocalRandom.current().nextLong(thinkMillis + 1));
+        }
+    }
+
+    private void write(List<LoadTestReport> reports) throws Exception {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("warmupSeconds", warmupSeconds);
+        settings.put("durationSeconds", durationSeconds);
+        settings.put("thinkMillis", thinkMillis);
+        settings.put("roundsPerUser", roundsPerUser);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("settings", settings);
+        result.put("levels", reports.stream().map(LoadTestReport::toMap).collect(Collectors.toList()));
+
+        File file = new File("target/loadtest/shopping-flow.json");
+        file.getParentFile().mkdirs();
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, result);
+    }
+
+    private static ModifyCartRequest modifyCart(String username, long itemId, int quantity) {
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setUsername(username);
+        request.setItemId(itemId);
+        request.setQuantity(quantity);
+        return request;
+    }
+}
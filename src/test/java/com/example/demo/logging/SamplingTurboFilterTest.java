@@ -0,0 +1,72 @@
+package com.example.demo.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SamplingTurboFilterTest {
+
+    private static final int ATTEMPTS = 10000;
+
+    private LoggerContext loggerContext = new LoggerContext();
+
+    private SamplingTurboFilter samplingTurboFilter;
+
+    @Before
+    public void before() {
+
+        samplingTurboFilter = new SamplingTurboFilter();
+        samplingTurboFilter.setContext(loggerContext);
+        samplingTurboFilter.addSample("com.example.demo.security=10");
+        samplingTurboFilter.addSample("com.example.demo.security.JWTAuthorizationFilter=1000");
+        samplingTurboFilter.start();
+    }
+
+    @Test
+    public void longestMatchingLoggerNameSetsTheRate() {
+
+        int kept = kept(loggerContext.getLogger("com.example.demo.security.JWTAuthorizationFilter"), Level.INFO);
+        int keptByParent = kept(loggerContext.getLogger("com.example.demo.security.JWTAuthenticationFilter"), Level.INFO);
+
+        assertTrue("Kept " + kept, kept < 50);
+        assertTrue("Kept " + keptByParent, keptByParent > 500 && keptByParent < 2000);
+    }
+
+    @Test
+    public void otherLoggersAreNotSampled() {
+
+        assertEquals(ATTEMPTS, kept(loggerContext.getLogger("com.example.demo.controllers.UserController"), Level.DEBUG));
+    }
+
+    @Test
+    public void warningsAreNeverDropped() {
+
+        assertEquals(ATTEMPTS, kept(loggerContext.getLogger("com.example.demo.security.JWTAuthorizationFilter"), Level.WARN));
+    }
+
+    @Test
+    public void enabledChecksAreNotSampled() {
+
+        Logger logger = loggerContext.getLogger("com.example.demo.security.JWTAuthorizationFilter");
+
+        for (int i = 0; i < ATTEMPTS; i++) {
+            assertEquals(FilterReply.NEUTRAL, samplingTurboFilter.decide(null, logger, Level.DEBUG, null, null, null));
+        }
+    }
+
+    private int kept(Logger logger, Level level) {
+
+        int kept = 0;
+        for (int i = 0; i < ATTEMPTS; i++) {
+            if (samplingTurboFilter.decide(null, logger, level, "message {}", new Object[]{i}, null) == FilterReply.NEUTRAL) {
+                kept++;
+            }
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.metrics;
+
+import com.example.demo.controllers.ItemController;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.Assert.*;
+
+public class HandlerTagsProviderTest {
+
+    private HandlerTagsProvider handlerTagsProvider = new HandlerTagsProvider();
+
+    @Test
+    public void controllerMethodIsTagged() throws Exception {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/item/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/item/{id}");
+        HandlerMethod handler = new HandlerMethod(new ItemController(), ItemController.class.getMethod("getItemById", Long.class, WebRequest.class));
+
+        Tags tags = Tags.of(handlerTagsProvider.getTags(request, new MockHttpServletResponse(), handler, null));
+
+        assertTrue(tags.stream().anyMatch(Tag.of("handler", "ItemController.getItemById")::equals));
+        assertTrue(tags.stream().anyMatch(Tag.of("uri", "/api/item/{id}")::equals));
+    }
+
+    @Test
+    public void loginKeepsItsUri() {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+        request.setServletPath("/login");
+
+        Tags tags = Tags.of(handlerTagsProvider.getTags(request, new MockHttpServletResponse(), null, null));
+
+        assertTrue(tags.stream().anyMatch(Tag.of("uri", "/login")::equals));
+        assertTrue(tags.stream().anyMatch(Tag.of("handler", "none")::equals));
+    }
+}
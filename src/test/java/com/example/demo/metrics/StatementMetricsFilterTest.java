@@ -0,0 +1,38 @@
+package com.example.demo.metrics;
+
+import com.example.demo.persistence.StatementCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.Assert.*;
+
+public class StatementMetricsFilterTest {
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private StatementMetricsFilter statementMetricsFilter = new StatementMetricsFilter(meterRegistry);
+
+    @Test
+    public void statementsOfTheRequestAreRecordedByUri() throws Exception {
+
+        StatementCounter counter = new StatementCounter();
+        counter.inspect("select 1");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/order/history/herve");
+
+        statementMetricsFilter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/order/history/{username}");
+            counter.inspect("select * from user_order");
+            counter.inspect("select * from cart");
+        });
+
+        DistributionSummary summary = meterRegistry.get(StatementMetricsFilter.METRIC_NAME)
+                .tag("uri", "/api/order/history/{username}")
+                .summary();
+        assertEquals(1, summary.count());
+        assertEquals(2, summary.totalAmount(), 0);
+    }
+}
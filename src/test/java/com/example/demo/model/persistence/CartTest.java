@@ -0,0 +1,85 @@
+package com.example.demo.model.persistence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class CartTest {
+
+    private static final String ITEM_NAME_ROUND_WIDGET = "Round Widget";
+    private static final String ROUND_WIDGET_DESCRIPTION = "A widget that is round";
+
+    @Test
+    public void addingQuantityKeepsASingleLine() {
+
+        Cart cart = new Cart();
+        Item item = getItem();
+
+        cart.addItem(item, 500);
+        cart.addItem(item);
+
+        assertEquals(1, cart.getLines().size());
+        assertEquals(501, cart.getLines().get(0).getQuantity());
+        assertEquals(501, cart.getItemCount());
+        assertEquals(0, new BigDecimal("1497.99").compareTo(cart.getTotal()));
+        assertEquals(0, new BigDecimal("1497.99").compareTo(cart.getLines().get(0).getLineTotal()));
+    }
+
+    @Test
+    public void removingMoreThanTheLineHoldsDropsTheLine() {
+
+        Cart cart = new Cart();
+        Item item = getItem();
+
+        cart.addItem(item, 3);
+        cart.removeItem(item, 5);
+
+        assertTrue(cart.getLines().isEmpty());
+        assertEquals(0, BigDecimal.ZERO.compareTo(cart.getTotal()));
+    }
+
+    @Test
+    public void removingAnItemNotInTheCartLeavesTheTotalUntouched() {
+
+        Cart cart = new Cart();
+        cart.addItem(getItem(), 2);
+
+        Item other = getItem();
+        other.setId(2L);
+        cart.removeItem(other, 1);
+
+        assertEquals(0, new BigDecimal("5.98").compareTo(cart.getTotal()));
+    }
+
+    @Test
+    public void itemsAreStillRenderedOncePerUnit() throws Exception {
+
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.addItem(getItem(), 3);
+
+        JsonNode json = new ObjectMapper().valueToTree(cart);
+
+        assertEquals(3, json.get("items").size());
+        assertEquals(ITEM_NAME_ROUND_WIDGET, json.get("items").get(0).get("name").asText());
+        assertTrue(json.has("id"));
+        assertTrue(json.has("total"));
+        assertTrue(json.has("user"));
+        assertFalse(json.has("lines"));
+        assertFalse(json.has("itemCount"));
+    }
+
+    private Item getItem() {
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setName(ITEM_NAME_ROUND_WIDGET);
+        item.setDescription(ROUND_WIDGET_DESCRIPTION);
+        item.setPrice(BigDecimal.valueOf(2.99));
+        return item;
+    }
+}
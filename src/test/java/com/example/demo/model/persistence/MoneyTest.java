@@ -0,0 +1,72 @@
+package com.example.demo.model.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void amountsAreWholeCents() {
+
+        assertEquals(299L, Money.toCents(new BigDecimal("2.99")));
+        assertEquals(300L, Money.toCents(new BigDecimal("3")));
+        assertEquals(310L, Money.toCents(new BigDecimal("3.100")));
+        assertEquals(new BigDecimal("2.99"), Money.toBigDecimal(299L));
+        assertEquals("-0.05", Money.toString(-5L));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void fractionsOfACentAreRefused() {
+
+        Money.toCents(new BigDecimal("2.999"));
+    }
+
+    @Test
+    public void aMissingColumnReadsAsZero() {
+
+        MoneyConverter converter = new MoneyConverter();
+
+        assertEquals(Long.valueOf(0L), converter.convertToEntityAttribute(null));
+        assertEquals(Long.valueOf(1497L), converter.convertToEntityAttribute(new BigDecimal("14.97")));
+        assertEquals(new BigDecimal("14.97"), converter.convertToDatabaseColumn(1497L));
+    }
+
+    @Test
+    public void itemsKeepTheirJsonFormat() throws Exception {
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setName("Round Widget");
+        item.setPrice(new BigDecimal("2.99"));
+        item.setDescription("A widget that is round");
+
+        String json = objectMapper.writeValueAsString(item);
+
+        assertEquals("{\"id\":1,\"name\":\"Round Widget\",\"price\":2.99,\"description\":\"A widget that is round\"}",
+                json);
+        assertEquals(299L, objectMapper.readValue(json, Item.class).getPriceCents());
+        assertEquals(150L, objectMapper.readValue("{\"price\":\"1.5\"}", Item.class).getPriceCents());
+    }
+
+    @Test
+    public void cartTotalsAreKeptInCents() {
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setPrice(new BigDecimal("0.10"));
+        Cart cart = new Cart();
+
+        cart.addItem(item, 3);
+        cart.removeItem(item, 1);
+
+        assertEquals(20L, cart.getTotalCents());
+        assertEquals(20L, cart.getLines().get(0).getLineTotalCents());
+        assertEquals(20L, UserOrder.createFromCart(cart).getTotalCents());
+    }
+}
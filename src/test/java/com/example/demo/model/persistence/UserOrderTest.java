@@ -0,0 +1,80 @@
+package com.example.demo.model.persistence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class UserOrderTest {
+
+    private static final String ITEM_NAME_ROUND_WIDGET = "Round Widget";
+    private static final String ROUND_WIDGET_DESCRIPTION = "A widget that is round";
+
+    @Test
+    public void ordersKeepThePriceTheyWereSubmittedAt() {
+
+        Item item = getItem();
+        Cart cart = new Cart();
+        cart.addItem(item, 3);
+
+        UserOrder order = UserOrder.createFromCart(cart);
+        item.setName("Renamed Widget");
+        item.setPrice(BigDecimal.TEN);
+
+        assertEquals(1, order.getLines().size());
+        OrderLine line = order.getLines().get(0);
+        assertEquals(Long.valueOf(1L), line.getItemId());
+        assertEquals(ITEM_NAME_ROUND_WIDGET, line.getName());
+        assertEquals(3, line.getQuantity());
+        assertEquals(0, new BigDecimal("2.99").compareTo(line.getUnitPrice()));
+        assertEquals(0, new BigDecimal("8.97").compareTo(line.getLineTotal()));
+        assertSame(order, line.getOrder());
+    }
+
+    @Test
+    public void itemsAreStillRenderedOncePerUnit() throws Exception {
+
+        Cart cart = new Cart();
+        cart.addItem(getItem(), 3);
+        UserOrder order = UserOrder.createFromCart(cart);
+        order.setId(1L);
+
+        JsonNode json = new ObjectMapper().findAndRegisterModules().valueToTree(order);
+
+        assertEquals(3, json.get("items").size());
+        assertEquals(1L, json.get("items").get(0).get("id").asLong());
+        assertEquals(ITEM_NAME_ROUND_WIDGET, json.get("items").get(0).get("name").asText());
+        assertEquals(0, new BigDecimal("2.99").compareTo(json.get("items").get(0).get("price").decimalValue()));
+        assertEquals(3, json.get("itemCount").asInt());
+        assertFalse(json.has("lines"));
+    }
+
+    @Test
+    public void settingItemsGroupsThemIntoLines() {
+
+        Item other = getItem();
+        other.setId(2L);
+        UserOrder order = new UserOrder();
+
+        order.setItems(Arrays.asList(getItem(), other, getItem()));
+
+        assertEquals(2, order.getLines().size());
+        assertEquals(2, order.getLines().get(0).getQuantity());
+        assertEquals(1, order.getLines().get(1).getQuantity());
+        assertEquals(3, order.getItems().size());
+    }
+
+    private Item getItem() {
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setName(ITEM_NAME_ROUND_WIDGET);
+        item.setDescription(ROUND_WIDGET_DESCRIPTION);
+        item.setPrice(BigDecimal.valueOf(2.99));
+        return item;
+    }
+}
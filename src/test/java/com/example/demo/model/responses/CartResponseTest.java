@@ -0,0 +1,95 @@
+package com.example.demo.model.responses;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class CartResponseTest {
+
+    private static final String ITEM_NAME_ROUND_WIDGET = "Round Widget";
+    private static final String ROUND_WIDGET_DESCRIPTION = "A widget that is round";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    public void cartKeepsTheFieldsOfTheEntity() {
+
+        Cart cart = getCart(3);
+
+        JsonNode entity = objectMapper.valueToTree(cart);
+        JsonNode response = objectMapper.valueToTree(CartResponse.of(cart, false));
+
+        for (Iterator<String> names = entity.fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            assertEquals(name, entity.get(name), response.get(name));
+        }
+        assertFalse(response.get("user").has("password"));
+        assertFalse(response.has("lines"));
+    }
+
+    @Test
+    public void orderKeepsTheFieldsOfTheEntity() {
+
+        UserOrder order = UserOrder.createFromCart(getCart(3));
+        order.setId(1L);
+
+        JsonNode entity = objectMapper.valueToTree(order);
+        JsonNode response = objectMapper.valueToTree(OrderResponse.of(order, false));
+
+        for (Iterator<String> names = entity.fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            assertEquals(name, entity.get(name), response.get(name));
+        }
+    }
+
+    @Test
+    public void lineViewOfALargeCartStaysSmall() throws Exception {
+
+        Cart cart = getCart(500);
+
+        byte[] units = objectMapper.writeValueAsBytes(CartResponse.of(cart, false));
+        byte[] lines = objectMapper.writeValueAsBytes(CartResponse.of(cart, true));
+
+        JsonNode json = objectMapper.readTree(lines);
+        assertFalse(json.has("items"));
+        assertEquals(1, json.get("lines").size());
+        assertEquals(500, json.get("lines").get(0).get("quantity").asInt());
+        assertEquals(0, new BigDecimal("1495.00").compareTo(json.get("lines").get(0).get("lineTotal").decimalValue()));
+        assertEquals(500, json.get("itemCount").asInt());
+        assertTrue("Expected the line view to be over 100 times smaller, got " + units.length + " and "
+                + lines.length + " bytes", lines.length * 100 < units.length);
+    }
+
+    private Cart getCart(int quantity) {
+
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("herve");
+        user.setPassword("hashedHervePaswword");
+
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.setUser(user);
+        cart.addItem(getItem(), quantity);
+        return cart;
+    }
+
+    private Item getItem() {
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setName(ITEM_NAME_ROUND_WIDGET);
+        item.setDescription(ROUND_WIDGET_DESCRIPTION);
+        item.setPrice(BigDecimal.valueOf(2.99));
+        return item;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo.order;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OrderSubmissionQueueTest {
+
+    private OrderRepository orderRepository = mock(OrderRepository.class);
+
+    @Test
+    public void queuedOrdersAreWrittenInBatchesAndDrainedOnShutdown() throws Exception {
+
+        List<Integer> batches = new ArrayList<>();
+        when(orderRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<UserOrder> batch = invocation.getArgument(0);
+            batches.add(batch.size());
+            return batch;
+        });
+        OrderSubmissionQueue orderSubmissions = queue(10, 3);
+        for (int i = 0; i < 7; i++) {
+            assertTrue(orderSubmissions.offer(order("order-" + i, 1L)));
+        }
+        assertEquals(OrderSubmissionQueue.State.QUEUED, orderSubmissions.stateOf("order-0", 1L));
+
+        orderSubmissions.start();
+        orderSubmissions.shutdown();
+
+        assertEquals(7, batches.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batches.stream().allMatch(size -> size <= 3));
+        assertEquals(0, orderSubmissions.getQueueSize());
+        assertNull(orderSubmissions.stateOf("order-0", 1L));
+        assertFalse(orderSubmissions.offer(order("too-late", 1L)));
+    }
+
+    @Test
+    public void fullQueueRefusesOrders() {
+
+        OrderSubmissionQueue orderSubmissions = queue(2, 10);
+
+        assertTrue(orderSubmissions.offer(order("first", 1L)));
+        assertTrue(orderSubmissions.offer(order("second", 1L)));
+        assertFalse(orderSubmissions.offer(order("third", 1L)));
+
+        assertEquals(1, orderSubmissions.getRejected());
+        assertEquals(OrderSubmissionQueue.State.QUEUED, orderSubmissions.stateOf("first", 1L));
+        assertNull(orderSubmissions.stateOf("first", 2L));
+        assertNull(orderSubmissions.stateOf("third", 1L));
+    }
+
+    @Test
+    public void failedBatchIsWrittenOneOrderAtATime() throws Exception {
+
+        when(orderRepository.saveAll(anyList())).thenThrow(new IllegalStateException("batch failed"));
+        when(orderRepository.save(any())).thenAnswer(invocation -> {
+            UserOrder order = invocation.getArgument(0);
+            if ("bad".equals(order.getReference())) {
+                throw new IllegalStateException("order failed");
+            }
+            return order;
+        });
+        OrderSubmissionQueue orderSubmissions = queue(10, 10);
+        orderSubmissions.offer(order("good", 1L));
+        orderSubmissions.offer(order("bad", 1L));
+
+        orderSubmissions.start();
+        orderSubmissions.shutdown();
+
+        assertNull(orderSubmissions.stateOf("good", 1L));
+        assertEquals(OrderSubmissionQueue.State.FAILED, orderSubmissions.stateOf("bad", 1L));
+        assertEquals(1, orderSubmissions.getFailures());
+    }
+
+    @Test
+    public void everyAcceptedOrderIsWrittenWhenShutdownRacesWithSubmissions() throws Exception {
+
+        Set<String> written = ConcurrentHashMap.newKeySet();
+        when(orderRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<UserOrder> batch = invocation.getArgument(0);
+            batch.forEach(order -> written.add(order.getReference()));
+            return batch;
+        });
+        OrderSubmissionQueue orderSubmissions = queue(100_000, 50);
+        orderSubmissions.start();
+
+        Set<String> accepted = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch started = new CountDownLatch(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                started.countDown();
+                for (int i = 0; ; i++) {
+                    String reference = "order-" + thread + "-" + i;
+                    if (!orderSubmissions.offer(order(reference, 1L))) {
+                        return;
+                    }
+                    accepted.add(reference);
+                }
+            }));
+        }
+        started.await();
+        orderSubmissions.shutdown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertFalse(accepted.isEmpty());
+        assertEquals(accepted, written);
+        assertEquals(0, orderSubmissions.getQueueSize());
+    }
+
+    private OrderSubmissionQueue queue(int capacity, int batchSize) {
+        return new OrderSubmissionQueue(orderRepository, new OrderVersions(100), mock(PlatformTransactionManager.class),
+                true, capacity, batchSize, 5);
+    }
+
+    private static UserOrder order(String reference, long userId) {
+        User user = new User();
+        user.setId(userId);
+        UserOrder order = new UserOrder();
+        order.setReference(reference);
+        order.setUser(user);
+        return order;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.demo.persistence;
+
+import com.example.demo.catalog.ItemCatalog;
+import com.example.demo.controllers.CartController;
+import com.example.demo.controllers.OrderController;
+import com.example.demo.controllers.UserController;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.requests.CartOperation;
+import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.requests.ModifyCartBatchRequest;
+import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.OrderResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the cart and order endpoints run the same, small number of statements whatever the size of the cart.
+ * Responses are serialized inside the measurement so that a lazy association missed by a fetch plan fails the test.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class FetchPlanStatementCountTest {
+
+    private static final int LARGE_CART_ITEMS = 20;
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private CartController cartController;
+
+    @Autowired
+    private OrderController orderController;
+
+    @Autowired
+    private ItemCatalog itemCatalog;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private List<Item> items;
+
+    @Before
+    public void before() {
+
+        List<Item> newItems = new ArrayList<>();
+        for (int i = 0; i < LARGE_CART_ITEMS; i++) {
+            Item item = new Item();
+            item.setName("Statement Widget " + i);
+            item.setDescription("A widget to count statements with");
+            item.setPrice(BigDecimal.valueOf(1.5));
+            newItems.add(item);
+        }
+        items = itemCatalog.saveAll(newItems);
+    }
+
+    @Test
+    public void cartMutationsDoNotDependOnTheCartSize() throws Exception {
+
+        String small = createUserWithCart(1);
+        String large = createUserWithCart(LARGE_CART_ITEMS);
+
+        int smallStatements = countAddToCart(small);
+        int largeStatements = countAddToCart(large);
+
+        assertEquals(smallStatements, largeStatements);
+        assertTrue("Expected at most 3 statements, got " + largeStatements, largeStatements <= 3);
+    }
+
+    @Test
+    public void orderSubmissionReadsTheCartOnce() throws Exception {
+
+        String small = createUserWithCart(1);
+        String large = createUserWithCart(LARGE_CART_ITEMS);
+
+        StatementCounter.reset();
+        serialize(orderController.submit(small, false));
+        int smallSelects = StatementCounter.getSelects();
+
+        StatementCounter.reset();
+        serialize(orderController.submit(large, false));
+        int largeSelects = StatementCounter.getSelects();
+
+        assertEquals(smallSelects, largeSelects);
+        assertEquals(1, largeSelects);
+    }
+
+    @Test
+    public void orderSubmissionWritesItsLinesInOneBatch() throws Exception {
+
+        String large = createUserWithCart(LARGE_CART_ITEMS);
+
+        StatementCounter.reset();
+        serialize(orderController.submit(large, false));
+
+        // the cart select, one batch for the order and one for its lines, a sequence call for each at most, the item
+        // table is left alone
+        int statements = StatementCounter.getStatements();
+        assertTrue("Expected at most 5 statements, got " + statements, statements <= 5);
+    }
+
+    @Test
+    public void orderHistoryDoesNotDependOnTheNumberOfItems() throws Exception {
+
+        String small = createUserWithCart(1);
+        String large = createUserWithCart(LARGE_CART_ITEMS);
+        orderController.submit(small, false);
+        orderController.submit(small, false);
+        OrderResponse order = orderController.submit(large, false).getBody();
+        orderController.submit(large, false);
+
+        StatementCounter.reset();
+        serialize(orderController.getOrdersForUser(small, false, historyRequest()));
+        int smallStatements = StatementCounter.getStatements();
+
+        StatementCounter.reset();
+        ResponseEntity<List<OrderResponse>> history = orderController.getOrdersForUser(large, false, historyRequest());
+        serialize(history);
+        int largeStatements = StatementCounter.getStatements();
+
+        assertEquals(2, history.getBody().size());
+        assertEquals(2 * LARGE_CART_ITEMS, history.getBody().get(0).getItems().size());
+        assertEquals(smallStatements, largeStatements);
+        assertEquals(1, largeStatements);
+
+        StatementCounter.reset();
+        serialize(orderController.getOrder(large, order.getId(), false));
+        assertEquals(1, StatementCounter.getStatements());
+    }
+
+    private String createUserWithCart(int distinctItems) {
+
+        String username = "statements" + USERS.incrementAndGet();
+        CreateUserRequest createUserRequest = new CreateUserRequest();
+        createUserRequest.setUsername(username);
+        createUserRequest.setPassword("password");
+        createUserRequest.setPasswordConfirm("password");
+        userController.createUser(createUserRequest);
+
+        List<CartOperation> operations = new ArrayList<>();
+        for (int i = 0; i < distinctItems; i++) {
+            operations.add(new CartOperation(items.get(i).getId(), 2));
+        }
+        ModifyCartBatchRequest request = new ModifyCartBatchRequest();
+        request.setUsername(username);
+        request.setOperations(operations);
+        assertTrue(cartController.modifyCart(request, false).getBody().getFailures().isEmpty());
+        return username;
+    }
+
+    private static ServletWebRequest historyRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/order/history"),
+                new MockHttpServletResponse());
+    }
+
+    private int countAddToCart(String username) throws Exception {
+
+        ModifyCartRequest request = new ModifyCartRequest();
+        request.setUsername(username);
+        request.setItemId(items.get(0).getId());
+        request.setQuantity(1);
+
+        StatementCounter.reset();
+        serialize(cartController.addTocart(request, false));
+        return StatementCounter.getStatements();
+    }
+
+    private void serialize(ResponseEntity<?> response) throws Exception {
+
+        assertNotNull(response.getBody());
+        objectMapper.writeValueAsString(response.getBody());
+    }
+}
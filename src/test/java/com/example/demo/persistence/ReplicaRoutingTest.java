@@ -0,0 +1,87 @@
+package com.example.demo.persistence;
+
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.*;
+
+/**
+ * The replica pool opens the same in-memory database as the primary one, a replica that never lags, so only the pool
+ * a transaction took its connection from tells where it was routed.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:replica-routing;DB_CLOSE_DELAY=-1",
+        "datasource.replica.url=jdbc:h2:mem:replica-routing;DB_CLOSE_DELAY=-1"})
+public class ReplicaRoutingTest {
+
+    @Autowired
+    private ReplicaDataSourceConfiguration dataSources;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @After
+    public void logOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void readOnlyTransactionsUseTheReplica() {
+        assertEquals("replica", poolUsedBy(readOnly()));
+    }
+
+    @Test
+    public void otherTransactionsUseThePrimary() {
+        assertEquals("primary", poolUsedBy(new TransactionTemplate(transactionManager)));
+    }
+
+    @Test
+    public void writersReadFromThePrimaryForAWhile() {
+        logIn("writer");
+        poolUsedBy(new TransactionTemplate(transactionManager));
+        assertEquals("primary", poolUsedBy(readOnly()));
+
+        logIn("reader");
+        assertEquals("replica", poolUsedBy(readOnly()));
+    }
+
+    @Test
+    public void readsCanBePinnedToThePrimary() {
+        assertEquals("primary", ReadWriteRoutingDataSource.onPrimary(() -> poolUsedBy(readOnly())));
+        assertEquals("replica", poolUsedBy(readOnly()));
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private String poolUsedBy(TransactionTemplate template) {
+        return template.execute(status -> {
+            userRepository.findByUsername("nobody");
+            int onPrimary = dataSources.getPrimary().getHikariPoolMXBean().getActiveConnections();
+            int onReplica = dataSources.getReplica().getHikariPoolMXBean().getActiveConnections();
+            assertEquals(1, onPrimary + onReplica);
+            return onPrimary == 1 ? "primary" : "replica";
+        });
+    }
+
+    private void logIn(String username) {
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken(username, null, emptyList()));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.persistence;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SequenceAlignerTest {
+
+    @Autowired
+    private SequenceAligner sequenceAligner;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void idsWrittenOutsideTheSequenceAreSkipped() {
+
+        long max = jdbcTemplate.queryForObject("select max(id) from item", Long.class);
+        long explicitId = max + 1000;
+        jdbcTemplate.update("insert into item (id, name, price, description) values (?, ?, ?, ?)",
+                explicitId, "Legacy Widget", BigDecimal.ONE, "A widget inserted with its own id");
+
+        sequenceAligner.align();
+
+        long next = jdbcTemplate.queryForObject("select next value for item_seq", Long.class);
+        assertTrue("Expected the sequence past " + explicitId + ", got " + next, next > explicitId);
+    }
+}
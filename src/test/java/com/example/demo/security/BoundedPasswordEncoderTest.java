@@ -0,0 +1,96 @@
+package com.example.demo.security;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BoundedPasswordEncoderTest {
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @After
+    public void after() {
+        passwordEncoder.shutdown();
+    }
+
+    @Test
+    public void hashesAreVerifiedOnThePool() {
+
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 4, 1, 1);
+
+        String hash = passwordEncoder.encode("password");
+
+        assertTrue(passwordEncoder.matches("password", hash));
+        assertFalse(passwordEncoder.matches("other", hash));
+    }
+
+    @Test
+    public void saturatedPoolRejectsRightAway() throws Exception {
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+        passwordEncoder = new BoundedPasswordEncoder(blocking, 10, 1, 1);
+
+        Thread running = new Thread(() -> passwordEncoder.encode("running"));
+        running.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread queued = new Thread(() -> passwordEncoder.encode("queued"));
+        queued.start();
+        while (passwordEncoder.getQueueSize() == 0) {
+            Thread.sleep(1);
+        }
+
+        try {
+            passwordEncoder.encode("rejected");
+            fail("Expected the encoder to reject the work");
+        } catch (PasswordHashingRejectedException e) {
+            assertEquals(1, passwordEncoder.getRejected());
+        } finally {
+            release.countDown();
+            running.join();
+            queued.join();
+        }
+    }
+
+    @Test
+    public void weakerHashesAreUpgraded() {
+
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(5), 5, 1, 1);
+
+        assertTrue(passwordEncoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password")));
+        assertFalse(passwordEncoder.upgradeEncoding(passwordEncoder.encode("password")));
+        assertFalse(passwordEncoder.upgradeEncoding("not a bcrypt hash"));
+    }
+
+    @Test
+    public void calibrationStaysWithinBounds() {
+
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 4, 1, 1);
+
+        assertEquals(BoundedPasswordEncoder.MIN_STRENGTH, BoundedPasswordEncoder.calibrate(1));
+        assertEquals(BoundedPasswordEncoder.MAX_STRENGTH, BoundedPasswordEncoder.calibrate(TimeUnit.HOURS.toMillis(1)));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+import static com.example.demo.security.SecurityConstants.EXPIRATION_TIME;
+import static com.example.demo.security.SecurityConstants.SECRET;
+import static org.junit.Assert.*;
+
+public class JWTTokenVerifierTest {
+
+    private static final String USERNAME = "herve";
+
+    private final AtomicLong now = new AtomicLong(System.currentTimeMillis());
+
+    private JWTTokenVerifier tokenVerifier;
+
+    @Before
+    public void before() {
+        tokenVerifier = new JWTTokenVerifier(3, now::get);
+    }
+
+    @Test
+    public void verifyReturnsSubjectAndCachesToken() {
+
+        String token = createToken(USERNAME, now.get() + EXPIRATION_TIME);
+
+        assertEquals(USERNAME, tokenVerifier.verify(token));
+        assertEquals(USERNAME, tokenVerifier.verify(token));
+        assertEquals(USERNAME, tokenVerifier.verify(token));
+
+        assertEquals(1, tokenVerifier.getMisses());
+        assertEquals(2, tokenVerifier.getHits());
+        assertEquals(1, tokenVerifier.size());
+    }
+
+    @Test
+    public void cachedEntryDoesNotOutliveExpiry() {
+
+        long expiresAt = now.get() + 60_000;
+        String token = createToken(USERNAME, expiresAt);
+        tokenVerifier.verify(token);
+
+        // only the cache clock moves past the expiry, so the token is verified again instead of served from cache
+        now.set(expiresAt + 1_000);
+        assertEquals(USERNAME, tokenVerifier.verify(token));
+
+        assertEquals(0, tokenVerifier.getHits());
+        assertEquals(2, tokenVerifier.getMisses());
+    }
+
+    @Test(expected = JWTVerificationException.class)
+    public void tokenSignedWithAnotherSecretIsRejected() {
+
+        String token = JWT.create()
+                .withSubject(USERNAME)
+                .withExpiresAt(new Date(now.get() + EXPIRATION_TIME))
+                .sign(HMAC512("AnotherSecret".getBytes()));
+
+        tokenVerifier.verify(token);
+    }
+
+    @Test
+    public void tokenWithoutExpiryIsNotCached() {
+
+        String token = JWT.create().withSubject(USERNAME).sign(HMAC512(SECRET.getBytes()));
+
+        tokenVerifier.verify(token);
+        tokenVerifier.verify(token);
+
+        assertEquals(0, tokenVerifier.size());
+        assertEquals(2, tokenVerifier.getMisses());
+    }
+
+    @Test
+    public void cacheStaysBounded() {
+
+        for (int i = 0; i < 10; i++) {
+            tokenVerifier.verify(createToken(USERNAME + i, now.get() + EXPIRATION_TIME));
+        }
+
+        assertTrue(tokenVerifier.size() <= 3);
+    }
+
+    @Test
+    public void cacheStaysBoundedUnderConcurrentVerifications() throws Exception {
+
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tokens.add(createToken(USERNAME + i, now.get() + EXPIRATION_TIME));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> verifications = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                verifications.add(executor.submit(() -> {
+                    for (String token : tokens) {
+                        tokenVerifier.verify(token);
+                        assertTrue(tokenVerifier.size() <= 3);
+                    }
+                }));
+            }
+            for (Future<?> verification : verifications) {
+                verification.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static String createToken(String subject, long expiresAt) {
+        return JWT.create()
+                .withSubject(subject)
+                .withExpiresAt(new Date(expiresAt))
+                .sign(HMAC512(SECRET.getBytes()));
+    }
+}
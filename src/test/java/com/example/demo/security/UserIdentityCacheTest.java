@@ -0,0 +1,92 @@
+package com.example.demo.security;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class UserIdentityCacheTest {
+
+    private static final String USERNAME = "herve";
+
+    private UserRepository userRepository = mock(UserRepository.class);
+
+    private UserIdentityCache identityCache;
+
+    @Before
+    public void before() {
+        identityCache = new UserIdentityCache(userRepository, 2);
+    }
+
+    @Test
+    public void resolveLooksTheUserUpOnce() {
+
+        when(userRepository.findByUsername(USERNAME)).thenReturn(getUser(USERNAME));
+
+        UserIdentity identity = identityCache.resolve(USERNAME);
+        identityCache.resolve(USERNAME);
+        identityCache.resolve(USERNAME);
+
+        assertEquals(1L, identity.getUserId());
+        assertEquals(Long.valueOf(7L), identity.getCartId());
+        verify(userRepository, times(1)).findByUsername(USERNAME);
+        assertEquals(2, identityCache.getHits());
+        assertEquals(1, identityCache.getDatabaseLookups());
+        assertEquals(2.0 / 3, identityCache.getHitRatio(), 0.0001);
+    }
+
+    @Test
+    public void unknownUsersAreNotCached() {
+
+        assertNull(identityCache.resolve(USERNAME));
+        assertNull(identityCache.resolve(USERNAME));
+
+        verify(userRepository, times(2)).findByUsername(USERNAME);
+        assertEquals(0, identityCache.size());
+    }
+
+    @Test
+    public void usersPutOnSignupAreServedFromCache() {
+
+        identityCache.put(getUser(USERNAME));
+
+        assertNotNull(identityCache.resolve(USERNAME));
+        verify(userRepository, never()).findByUsername(USERNAME);
+    }
+
+    @Test
+    public void evictedUsersAreLookedUpAgain() {
+
+        when(userRepository.findByUsername(USERNAME)).thenReturn(getUser(USERNAME));
+
+        identityCache.resolve(USERNAME);
+        identityCache.evict(USERNAME);
+        identityCache.resolve(USERNAME);
+
+        verify(userRepository, times(2)).findByUsername(USERNAME);
+    }
+
+    @Test
+    public void cacheStaysBounded() {
+
+        for (int i = 0; i < 10; i++) {
+            identityCache.put(getUser(USERNAME + i));
+        }
+
+        assertTrue(identityCache.size() <= 2);
+    }
+
+    private User getUser(String username) {
+        Cart cart = new Cart();
+        cart.setId(7L);
+        User user = new User();
+        user.setId(1L);
+        user.setUsername(username);
+        user.setCart(cart);
+        return user;
+    }
+}